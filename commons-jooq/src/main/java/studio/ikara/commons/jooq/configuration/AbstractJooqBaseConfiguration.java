@@ -15,6 +15,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
+import studio.ikara.commons.codec.BinaryTypeAdapter;
+import studio.ikara.commons.codec.BinaryTypeRegistry;
 import studio.ikara.commons.configuration.AbstractBaseConfiguration;
 import studio.ikara.commons.configuration.service.AbstractMessageService;
 import studio.ikara.commons.jooq.gson.UNumberAdapter;
@@ -58,6 +60,29 @@ public abstract class AbstractJooqBaseConfiguration extends AbstractBaseConfigur
                 .create();
     }
 
+    @Override
+    public BinaryTypeRegistry binaryTypeRegistry() {
+        return super.binaryTypeRegistry()
+                .register(
+                        1,
+                        ULong.class,
+                        BinaryTypeAdapter.of(
+                                (value, out) -> out.writeVarLong(value.longValue()),
+                                in -> ULong.valueOf(in.readVarLong())))
+                .register(
+                        2,
+                        UInteger.class,
+                        BinaryTypeAdapter.of(
+                                (value, out) -> out.writeVarLong(value.longValue()),
+                                in -> UInteger.valueOf(in.readVarLong())))
+                .register(
+                        3,
+                        UShort.class,
+                        BinaryTypeAdapter.of(
+                                (value, out) -> out.writeVarInt(value.intValue()),
+                                in -> UShort.valueOf(in.readVarInt())));
+    }
+
     @Bean
     public DSLContext context() {
         DriverManagerDataSource dataSource = new DriverManagerDataSource();
@@ -7,6 +7,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort.Direction;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -66,9 +67,8 @@ public abstract class AbstractJOOQDataController<
     }
 
     @PostMapping(PATH_QUERY)
-    public CompletableFuture<ResponseEntity<Page<D>>> readPageFilter(@RequestBody Query query) {
-        Pageable pageable = PageRequest.of(query.getPage(), query.getSize(), query.getSort());
-        return this.service.readPageFilter(pageable, query.getCondition()).thenApply(ResponseEntity::ok);
+    public CompletableFuture<ResponseEntity<Slice<D>>> readPageFilter(@RequestBody Query query) {
+        return this.service.readPageFilter(query).thenApply(ResponseEntity::ok);
     }
 
     @DeleteMapping(PATH_ID)
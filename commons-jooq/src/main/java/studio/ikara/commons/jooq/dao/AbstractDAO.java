@@ -1,13 +1,27 @@
 package studio.ikara.commons.jooq.dao;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import java.io.Serializable;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.jooq.Condition;
 import org.jooq.DSLContext;
@@ -16,6 +30,8 @@ import org.jooq.DeleteQuery;
 import org.jooq.Field;
 import org.jooq.Record1;
 import org.jooq.SelectJoinStep;
+import org.jooq.SelectLimitStep;
+import org.jooq.SelectSeekStepN;
 import org.jooq.SortField;
 import org.jooq.SortOrder;
 import org.jooq.Table;
@@ -24,8 +40,11 @@ import org.jooq.impl.DSL;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.http.HttpStatus;
@@ -34,7 +53,12 @@ import studio.ikara.commons.configuration.service.AbstractMessageService;
 import studio.ikara.commons.exception.GenericException;
 import studio.ikara.commons.function.Tuple2;
 import studio.ikara.commons.function.Tuples;
+import studio.ikara.commons.jooq.util.PageTokenUtil;
 import studio.ikara.commons.jooq.util.SnowflakeIdGenerator;
+import studio.ikara.commons.model.CountMode;
+import studio.ikara.commons.model.KeysetPage;
+import studio.ikara.commons.model.Query;
+import studio.ikara.commons.model.QuerySlice;
 import studio.ikara.commons.model.condition.AbstractCondition;
 import studio.ikara.commons.model.condition.ComplexCondition;
 import studio.ikara.commons.model.condition.ComplexConditionOperator;
@@ -49,18 +73,36 @@ public abstract class AbstractDAO<R extends UpdatableRecord<R>, I extends Serial
 
     private static final String OBJECT_NOT_FOUND = AbstractMessageService.OBJECT_NOT_FOUND;
 
+    private static final String INVALID_PAGE_TOKEN = AbstractMessageService.INVALID_PAGE_TOKEN;
+
+    private static final String NULLABLE_SORT_KEY = AbstractMessageService.NULLABLE_SORT_KEY;
+
+    private static final int FILTER_PLANS = 1024;
+
     protected final Class<D> pojoClass;
 
     protected final Logger logger;
     protected final Table<R> table;
     protected final Field<I> idField;
 
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Consumer<List<D>>> relations = new LinkedHashMap<>();
+
+    @Getter(AccessLevel.NONE)
+    private final Cache<String, FilterPlan> filterPlans = Caffeine.newBuilder().maximumSize(FILTER_PLANS).build();
+
+    @Getter(AccessLevel.NONE)
+    private volatile Map<String, Field<?>> fieldIndex;
+
     @Autowired // NOSONAR
     protected DSLContext dslContext;
 
     @Autowired // NOSONAR
     protected AbstractMessageService messageResourceService;
 
+    @Value("${dao.count.cap:10000}")
+    protected int countCap;
+
     protected AbstractDAO(Class<D> pojoClass, Table<R> table, Field<I> idField) {
         this.pojoClass = pojoClass;
         this.table = table;
@@ -92,18 +134,152 @@ public abstract class AbstractDAO<R extends UpdatableRecord<R>, I extends Serial
         });
     }
 
+    /**
+     * Reads a page the way the query asks. With {@link Query#isKeyset()} it seeks past the last row of the previous
+     * page, whose sort key values the page token carries, instead of skipping the rows of earlier pages, so every page
+     * costs the same however deep it is, and returns a {@link KeysetPage}. Without {@code count} no count query runs,
+     * and the count mode picks what the total may cost. The count runs on its own connection alongside the page query.
+     * A first page that holds every row is its own total, and its count is then cancelled, or ignored if it already
+     * started. A counted offset read with an exact total returns a
+     * {@link Page} as {@link #readPageFilter(Pageable, AbstractCondition)} does, and any other offset read a
+     * {@link QuerySlice}. Only the columns of the {@link #projection(Query, List)} are read and mapped, leaving the
+     * other properties of the returned objects null. With {@code eager} the {@link #relation relations} are loaded
+     * for the whole page.
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Slice<D>> readPageFilter(Query query) {
+        return VirtualThreadExecutor.supplyAsync(() -> {
+            Condition filterCondition = filter(query.getCondition());
+            Pageable pageable = query.getPageable();
+            CountMode countMode = query.getCountMode() == null ? CountMode.EXACT : query.getCountMode();
+            boolean count = !Boolean.FALSE.equals(query.getCount());
+
+            SeekOrder seekOrder = query.isKeyset() ? this.seekOrder(pageable.getSort()) : null;
+            boolean firstPage = seekOrder == null
+                    ? pageable.getOffset() == 0
+                    : query.getPageToken() == null || query.getPageToken().isBlank();
+
+            CompletableFuture<Tuple2<Long, Boolean>> total = count
+                    ? VirtualThreadExecutor.supplyAsync(() -> this.count(countMode, filterCondition))
+                    : null;
+
+            List<Field<?>> fields = this.projection(query, seekOrder == null ? List.of() : seekOrder.keys());
+            SelectJoinStep<org.jooq.Record> selectJoinStep =
+                    (SelectJoinStep<org.jooq.Record>) getSelectJointStep(fields).getT1().where(filterCondition);
+
+            // One row more than the page tells whether there is a next page without counting.
+            List<org.jooq.Record> records = seekOrder == null
+                    ? selectJoinStep
+                            .orderBy(this.orderBy(pageable.getSort()))
+                            .limit(pageable.getPageSize() + 1)
+                            .offset(pageable.getOffset())
+                            .fetch()
+                    : this.seek(selectJoinStep, seekOrder, query.getPageToken())
+                            .limit(pageable.getPageSize() + 1)
+                            .fetch();
+
+            boolean hasNext = records.size() > pageable.getPageSize();
+            if (hasNext) records = records.subList(0, pageable.getPageSize());
+
+            String nextPageToken = hasNext && seekOrder != null ? seekOrder.token(records.getLast()) : null;
+            List<D> recordsList = records.stream().map(e -> e.into(this.pojoClass)).toList();
+            this.eager(query, recordsList);
+
+            boolean pageIsTotal = firstPage && !hasNext;
+            if (total != null && pageIsTotal) total.cancel(false);
+
+            Tuple2<Long, Boolean> counted;
+            if (total == null) counted = null;
+            else if (pageIsTotal) counted = Tuples.of((long) recordsList.size(), Boolean.TRUE);
+            else counted = total.join();
+
+            Long totalElements = counted == null ? null : counted.getT1();
+            Boolean totalExact = counted == null ? null : counted.getT2();
+
+            if (seekOrder != null)
+                return new KeysetPage<>(
+                        recordsList,
+                        PageRequest.of(0, pageable.getPageSize(), pageable.getSort()),
+                        totalElements,
+                        totalExact,
+                        nextPageToken);
+
+            if (Boolean.TRUE.equals(totalExact) && countMode == CountMode.EXACT)
+                return PageableExecutionUtils.getPage(recordsList, pageable, counted::getT1);
+
+            return new QuerySlice<>(recordsList, pageable, hasNext, totalElements, totalExact);
+        });
+    }
+
+    /**
+     * Declares a relation page reads can load eagerly, usually from the constructor. The loader gets the ids of a whole
+     * page and returns the related values by id, in one query, and the setter gives each object its value, null when
+     * the loader returned none for its id.
+     */
+    protected <V> void relation(String name, Function<Collection<I>, Map<I, V>> loader, BiConsumer<D, V> setter) {
+        this.relations.put(name, page -> {
+            Map<I, V> values = loader.apply(page.stream().map(D::getId).toList());
+            page.forEach(pojo -> setter.accept(pojo, values.get(pojo.getId())));
+        });
+    }
+
+    /**
+     * Loads the relations named in {@code eagerFields}, all of them when none are named, each on its own connection.
+     * Names that are not relations are ignored.
+     */
+    protected void eager(Query query, List<D> page) {
+        if (!Boolean.TRUE.equals(query.getEager()) || page.isEmpty() || this.relations.isEmpty()) return;
+
+        Collection<String> names = query.getEagerFields() == null || query.getEagerFields().isEmpty()
+                ? this.relations.keySet()
+                : query.getEagerFields();
+
+        List<Supplier<Void>> loads = names.stream()
+                .distinct()
+                .map(this.relations::get)
+                .filter(Objects::nonNull)
+                .<Supplier<Void>>map(relation -> () -> {
+                    relation.accept(page);
+                    return null;
+                })
+                .toList();
+
+        VirtualThreadExecutor.all(loads).join();
+    }
+
+    /**
+     * Counts the rows matching the condition, and tells whether the count is exact. CAPPED stops counting after
+     * {@code dao.count.cap} rows, and ESTIMATED takes the optimizer's row estimate from EXPLAIN without reading any.
+     */
+    protected Tuple2<Long, Boolean> count(CountMode countMode, Condition condition) {
+        return switch (countMode) {
+            case EXACT -> {
+                Integer count = getSelectJointStep().getT2().where(condition).fetchOne().value1();
+                yield Tuples.of(count.longValue(), Boolean.TRUE);
+            }
+            case CAPPED -> {
+                int count = dslContext.fetchCount(getSelectJointStep(List.<Field<?>>of(DSL.one()))
+                        .getT1()
+                        .where(condition)
+                        .limit(this.countCap + 1));
+                yield Tuples.of((long) Math.min(count, this.countCap), count <= this.countCap);
+            }
+            case ESTIMATED -> {
+                double rows = dslContext.explain(getSelectJointStep().getT1().where(condition)).rows();
+                yield Tuples.of((long) rows, Boolean.FALSE);
+            }
+        };
+    }
+
     protected Page<D> list(
             Pageable pageable,
             Tuple2<SelectJoinStep<org.jooq.Record>, SelectJoinStep<Record1<Integer>>> selectJoinStepTuple) {
-        List<SortField<?>> orderBy = new ArrayList<>();
+        List<SortField<?>> orderBy = this.orderBy(pageable.getSort());
 
-        pageable.getSort().forEach(order -> {
-            Field<?> field = this.getField(order.getProperty());
-            if (field != null)
-                orderBy.add(field.sort(order.getDirection() == Sort.Direction.ASC ? SortOrder.ASC : SortOrder.DESC));
-        });
-
-        final Integer recordsCount = selectJoinStepTuple.getT2().fetchOne().value1();
+        // Counted on its own connection while this thread reads the page. getPage doesn't ask for the total when the
+        // page shows it, and the count is then cancelled, or ignored if it already started.
+        CompletableFuture<Integer> recordsCount =
+                VirtualThreadExecutor.supplyAsync(() -> selectJoinStepTuple.getT2().fetchOne().value1());
 
         SelectJoinStep<org.jooq.Record> selectJoinStep = selectJoinStepTuple.getT1();
         if (!orderBy.isEmpty()) {
@@ -116,7 +292,92 @@ public abstract class AbstractDAO<R extends UpdatableRecord<R>, I extends Serial
                 .fetch()
                 .map(e -> e.into(this.pojoClass));
 
-        return PageableExecutionUtils.getPage(recordsList, pageable, () -> recordsCount);
+        Page<D> page = PageableExecutionUtils.getPage(recordsList, pageable, recordsCount::join);
+        recordsCount.cancel(false);
+        return page;
+    }
+
+    private List<SortField<?>> orderBy(Sort sort) {
+        List<SortField<?>> orderBy = new ArrayList<>();
+
+        sort.forEach(order -> {
+            Field<?> field = this.getField(order.getProperty());
+            if (field != null)
+                orderBy.add(field.sort(order.getDirection() == Sort.Direction.ASC ? SortOrder.ASC : SortOrder.DESC));
+        });
+
+        return orderBy;
+    }
+
+    /**
+     * The order of a keyset read: the sort fields, then the id, and the signature a page token is issued for. Sort
+     * fields must be non-null, as a row with a NULL key compares as neither before nor after a seek value and would be
+     * skipped.
+     */
+    private record SeekOrder(List<Field<?>> keys, List<SortField<?>> orderBy, String signature) {
+
+        private String token(org.jooq.Record last) {
+            return PageTokenUtil.encode(
+                    this.signature,
+                    this.keys.stream().map(key -> Objects.toString(last.get(key), null)).toList());
+        }
+    }
+
+    private SeekOrder seekOrder(Sort sort) {
+        List<Field<?>> keys = new ArrayList<>();
+        List<SortField<?>> orderBy = new ArrayList<>();
+        StringBuilder signature = new StringBuilder();
+
+        sort.forEach(order -> {
+            Field<?> field = this.getField(order.getProperty());
+            if (field == null || keys.contains(field)) return;
+
+            if (field.getDataType().nullable())
+                throw new GenericException(
+                        HttpStatus.BAD_REQUEST, messageResourceService.getMessage(NULLABLE_SORT_KEY));
+
+            boolean ascending = order.getDirection() == Sort.Direction.ASC;
+            keys.add(field);
+            orderBy.add(field.sort(ascending ? SortOrder.ASC : SortOrder.DESC));
+            signature.append(field.getName()).append(ascending ? '+' : '-');
+        });
+
+        // The id breaks ties, so every row has one place in the order and none is repeated or skipped between pages.
+        if (!keys.contains(this.idField)) {
+            keys.add(this.idField);
+            orderBy.add(this.idField.asc());
+            signature.append(this.idField.getName()).append('+');
+        }
+
+        return new SeekOrder(keys, orderBy, signature.toString());
+    }
+
+    private SelectLimitStep<org.jooq.Record> seek(
+            SelectJoinStep<org.jooq.Record> selectJoinStep, SeekOrder seekOrder, String pageToken) {
+        SelectSeekStepN<org.jooq.Record> ordered = selectJoinStep.orderBy(seekOrder.orderBy());
+        if (pageToken == null || pageToken.isBlank()) return ordered;
+
+        return ordered.seek(this.seekValues(pageToken, seekOrder.signature(), seekOrder.keys()));
+    }
+
+    private Object[] seekValues(String pageToken, String signature, List<Field<?>> keys) {
+        try {
+            List<String> values = PageTokenUtil.decode(pageToken, signature);
+            if (values.size() != keys.size()) throw new IllegalArgumentException("Page token does not match the sort");
+
+            Object[] seek = new Object[values.size()];
+            for (int i = 0; i < seek.length; i++) {
+                String value = values.get(i);
+                Field<?> key = keys.get(i);
+                seek[i] = value == null || key.getType() != LocalDateTime.class
+                        ? key.getDataType().convert(value)
+                        : LocalDateTime.parse(value);
+            }
+            return seek;
+        } catch (RuntimeException ex) {
+            throw new GenericException(
+                    HttpStatus.BAD_REQUEST, messageResourceService.getMessage(INVALID_PAGE_TOKEN), ex);
+        }
     }
 
     public CompletableFuture<List<D>> readAll(AbstractCondition query) {
@@ -167,28 +428,90 @@ public abstract class AbstractDAO<R extends UpdatableRecord<R>, I extends Serial
     protected Condition filter(AbstractCondition condition) {
         if (condition == null) return DSL.noCondition();
 
-        Condition cond;
-        if (condition instanceof ComplexCondition cc) cond = complexConditionFilter(cc);
-        else cond = filterConditionFilter((FilterCondition) condition);
+        StringBuilder shape = new StringBuilder();
+        shape(condition, shape);
+        return this.filterPlans.get(shape.toString(), key -> this.compile(condition)).bind(condition);
+    }
 
-        return condition.isNegate() ? cond.not() : cond;
+    /**
+     * A condition compiled for one shape: its fields, operators and nesting. Compiling resolves the fields and walks
+     * the tree once, and binding only reads the values of a condition of the same shape.
+     */
+    @FunctionalInterface
+    protected interface FilterPlan {
+
+        Condition bind(AbstractCondition condition);
     }
 
-    @SuppressWarnings({"unchecked", "rawtypes"})
-    protected Condition filterConditionFilter(FilterCondition fc) {
-        Field field = this.getField(fc.getField());
+    // Names are length-prefixed so that no field name can make two different shapes look alike.
+    private static void shape(AbstractCondition condition, StringBuilder shape) {
+        if (condition == null) {
+            shape.append('~');
+            return;
+        }
+
+        if (condition.isNegate()) shape.append('!');
+
+        if (condition instanceof ComplexCondition cc) {
+            shape.append(cc.getOperator()).append('(');
+            if (cc.getConditions() != null)
+                for (AbstractCondition child : cc.getConditions()) shape(child, shape);
+            shape.append(')');
+            return;
+        }
+
+        FilterCondition fc = (FilterCondition) condition;
+        String field = Objects.toString(fc.getField(), "");
+        shape.append(fc.getOperator())
+                .append(fc.isValueField() ? '=' : '-')
+                .append(fc.isToValueField() ? '=' : '-')
+                .append(field.length())
+                .append(':')
+                .append(field)
+                .append(';');
+    }
+
+    protected FilterPlan compile(AbstractCondition condition) {
+        if (condition == null) return c -> DSL.noCondition();
+
+        FilterPlan plan = condition instanceof ComplexCondition cc
+                ? this.compileComplex(cc)
+                : this.compileFilter((FilterCondition) condition);
+
+        return condition.isNegate() ? c -> plan.bind(c).not() : plan;
+    }
+
+    private FilterPlan compileFilter(FilterCondition fc) {
+        Field<?> field = fc.getField() == null ? null : this.getField(fc.getField());
+
+        if (field == null) return c -> DSL.noCondition();
+
+        return c -> this.filterConditionFilter(field, (FilterCondition) c);
+    }
 
-        if (field == null) return DSL.noCondition();
+    private FilterPlan compileComplex(ComplexCondition cc) {
+        if (cc.getConditions() == null || cc.getConditions().isEmpty()) return c -> DSL.noCondition();
 
+        List<FilterPlan> plans = cc.getConditions().stream().map(this::compile).toList();
+        boolean and = cc.getOperator() == ComplexConditionOperator.AND;
+
+        return c -> {
+            List<AbstractCondition> children = ((ComplexCondition) c).getConditions();
+            List<Condition> conditions = new ArrayList<>(plans.size());
+            for (int i = 0; i < plans.size(); i++) conditions.add(plans.get(i).bind(children.get(i)));
+
+            return and ? DSL.and(conditions) : DSL.or(conditions);
+        };
+    }
+
+    /**
+     * Binds a filter condition on its already resolved field.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected Condition filterConditionFilter(Field field, FilterCondition fc) {
         if (fc.getOperator() == FilterConditionOperator.BETWEEN)
-            return field.between(
-                            fc.isValueField()
-                                    ? (Field<?>) this.getField(fc.getField())
-                                    : this.fieldValue(field, fc.getValue()))
-                    .and(
-                            fc.isToValueField()
-                                    ? (Field<?>) this.getField(fc.getField())
-                                    : this.fieldValue(field, fc.getToValue()));
+            return field.between(fc.isValueField() ? field : this.fieldValue(field, fc.getValue()))
+                    .and(fc.isToValueField() ? field : this.fieldValue(field, fc.getToValue()));
 
         if (fc.getOperator() == FilterConditionOperator.EQUALS
                 || fc.getOperator() == FilterConditionOperator.GREATER_THAN
@@ -196,13 +519,12 @@ public abstract class AbstractDAO<R extends UpdatableRecord<R>, I extends Serial
                 || fc.getOperator() == FilterConditionOperator.LESS_THAN
                 || fc.getOperator() == FilterConditionOperator.LESS_THAN_EQUAL) {
             if (fc.isValueField()) {
-                if (fc.getField() == null) return DSL.noCondition();
                 return switch (fc.getOperator()) {
-                    case EQUALS -> field.eq(this.getField(fc.getField()));
-                    case GREATER_THAN -> field.gt(this.getField(fc.getField()));
-                    case GREATER_THAN_EQUAL -> field.ge(this.getField(fc.getField()));
-                    case LESS_THAN -> field.lt(this.getField(fc.getField()));
-                    case LESS_THAN_EQUAL -> field.le(this.getField(fc.getField()));
+                    case EQUALS -> field.eq(field);
+                    case GREATER_THAN -> field.gt(field);
+                    case GREATER_THAN_EQUAL -> field.ge(field);
+                    case LESS_THAN -> field.lt(field);
+                    case LESS_THAN_EQUAL -> field.le(field);
                     default -> DSL.noCondition();
                 };
             }
@@ -210,11 +532,11 @@ public abstract class AbstractDAO<R extends UpdatableRecord<R>, I extends Serial
             if (fc.getValue() == null) return DSL.noCondition();
             Object v = this.fieldValue(field, fc.getValue());
             return switch (fc.getOperator()) {
-                case EQUALS -> field.eq(this.fieldValue(field, v));
-                case GREATER_THAN -> field.gt(this.fieldValue(field, v));
-                case GREATER_THAN_EQUAL -> field.ge(this.fieldValue(field, v));
-                case LESS_THAN -> field.lt(this.fieldValue(field, v));
-                case LESS_THAN_EQUAL -> field.le(this.fieldValue(field, v));
+                case EQUALS -> field.eq(v);
+                case GREATER_THAN -> field.gt(v);
+                case GREATER_THAN_EQUAL -> field.ge(v);
+                case LESS_THAN -> field.lt(v);
+                case LESS_THAN_EQUAL -> field.le(v);
                 default -> DSL.noCondition();
             };
         }
@@ -277,15 +599,6 @@ public abstract class AbstractDAO<R extends UpdatableRecord<R>, I extends Serial
         return value;
     }
 
-    protected Condition complexConditionFilter(ComplexCondition cc) {
-        if (cc.getConditions() == null || cc.getConditions().isEmpty()) return DSL.noCondition();
-
-        List<Condition> conditions =
-                cc.getConditions().stream().map(this::filter).toList();
-
-        return cc.getOperator() == ComplexConditionOperator.AND ? DSL.and(conditions) : DSL.or(conditions);
-    }
-
     protected org.jooq.Record getRecordById(I id) {
         org.jooq.Record rc =
                 this.getSelectJointStep().getT1().where(idField.eq(id)).fetchOne();
@@ -299,14 +612,74 @@ public abstract class AbstractDAO<R extends UpdatableRecord<R>, I extends Serial
     }
 
     protected Tuple2<SelectJoinStep<org.jooq.Record>, SelectJoinStep<Record1<Integer>>> getSelectJointStep() {
-        return Tuples.of(
-                dslContext.select(Arrays.asList(table.fields())).from(table),
-                dslContext.select(DSL.count()).from(table));
+        return getSelectJointStep(Arrays.asList(table.fields()));
+    }
+
+    protected Tuple2<SelectJoinStep<org.jooq.Record>, SelectJoinStep<Record1<Integer>>> getSelectJointStep(
+            List<Field<?>> fields) {
+        return Tuples.of(dslContext.select(fields).from(table), dslContext.select(DSL.count()).from(table));
+    }
+
+    /**
+     * The columns a query reads: those named in {@code fields}, or with {@code excludeFields} all but those, and always
+     * the id and the {@code required} ones. Names are DTO property names, and those that are not columns are ignored.
+     * Without {@code fields} every column is read.
+     */
+    protected List<Field<?>> projection(Query query, List<Field<?>> required) {
+        if (query.getFields() == null || query.getFields().isEmpty()) return Arrays.asList(table.fields());
+
+        Set<Field<?>> named = new HashSet<>();
+        for (String name : query.getFields()) {
+            Field<?> field = this.getField(name);
+            if (field != null) named.add(field);
+        }
+
+        boolean exclude = Boolean.TRUE.equals(query.getExcludeFields());
+        List<Field<?>> fields = new ArrayList<>();
+        for (Field<?> field : table.fields()) {
+            if (named.contains(field) != exclude || field.equals(this.idField) || required.contains(field))
+                fields.add(field);
+        }
+
+        return fields;
     }
 
     @SuppressWarnings("rawtypes")
     protected Field getField(String fieldName) {
-        return table.field(convertToJOOQFieldName(fieldName));
+        Field<?> field = this.fieldIndex().get(fieldName);
+        return field != null ? field : table.field(convertToJOOQFieldName(fieldName));
+    }
+
+    /**
+     * The table's fields by DTO property name, so that resolving a name is a lookup instead of a regex. A field is
+     * indexed only under the name that {@link #convertToJOOQFieldName(String)} maps back to it, and any other name
+     * still resolves the slow way.
+     */
+    private Map<String, Field<?>> fieldIndex() {
+        Map<String, Field<?>> index = this.fieldIndex;
+        if (index != null) return index;
+
+        Map<String, Field<?>> fields = new HashMap<>();
+        for (Field<?> field : table.fields()) {
+            String name = convertToPropertyName(field.getName());
+            if (field.equals(table.field(convertToJOOQFieldName(name)))) fields.put(name, field);
+        }
+
+        this.fieldIndex = index = Map.copyOf(fields);
+        return index;
+    }
+
+    private static String convertToPropertyName(String fieldName) {
+        StringBuilder name = new StringBuilder(fieldName.length());
+        boolean upper = false;
+        for (char c : fieldName.toCharArray()) {
+            if (c == '_') upper = true;
+            else {
+                name.append(upper ? Character.toUpperCase(c) : Character.toLowerCase(c));
+                upper = false;
+            }
+        }
+        return name.toString();
     }
 
     protected String convertToJOOQFieldName(String fieldName) {
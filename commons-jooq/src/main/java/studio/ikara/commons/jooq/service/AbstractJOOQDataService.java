@@ -9,8 +9,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import studio.ikara.commons.jooq.dao.AbstractDAO;
+import studio.ikara.commons.model.Query;
 import studio.ikara.commons.model.condition.AbstractCondition;
 import studio.ikara.commons.model.dto.AbstractDTO;
 import studio.ikara.commons.thread.VirtualThreadExecutor;
@@ -62,6 +64,10 @@ public abstract class AbstractJOOQDataService<
         return this.dao.readPageFilter(pageable, condition);
     }
 
+    public CompletableFuture<Slice<D>> readPageFilter(Query query) {
+        return this.dao.readPageFilter(query);
+    }
+
     public CompletableFuture<List<D>> readAllFilter(AbstractCondition condition) {
         return this.dao.readAll(condition);
     }
@@ -0,0 +1,63 @@
+package studio.ikara.commons.jooq.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Continuation tokens for keyset pagination. A token holds the sort it was issued for and the sort key values of the
+ * last row of a page, as text, in URL-safe Base64. Clients treat it as opaque and send it back unchanged.
+ */
+public class PageTokenUtil {
+
+    private static final byte VERSION = 1;
+
+    private PageTokenUtil() {}
+
+    public static String encode(String signature, List<String> values) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeUTF(signature);
+            out.writeShort(values.size());
+
+            for (String value : values) {
+                out.writeBoolean(value != null);
+                if (value != null) out.writeUTF(value);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Reads the values back from a token.
+     *
+     * @throws IllegalArgumentException if the token is malformed or was issued for a different sort
+     */
+    public static List<String> decode(String token, String signature) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            if (in.readByte() != VERSION || !signature.equals(in.readUTF()))
+                throw new IllegalArgumentException("Page token was not issued for this sort");
+
+            int count = in.readShort();
+            List<String> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) values.add(in.readBoolean() ? in.readUTF() : null);
+
+            if (in.available() != 0) throw new IllegalArgumentException("Page token has trailing data");
+
+            return values;
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Malformed page token", ex);
+        }
+    }
+}
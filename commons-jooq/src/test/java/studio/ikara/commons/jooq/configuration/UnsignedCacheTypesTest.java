@@ -0,0 +1,47 @@
+package studio.ikara.commons.jooq.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.jooq.types.UInteger;
+import org.jooq.types.ULong;
+import org.jooq.types.UShort;
+import org.junit.jupiter.api.Test;
+import studio.ikara.commons.codec.RedisBinaryCodec;
+import tools.jackson.databind.json.JsonMapper;
+
+class UnsignedCacheTypesTest {
+
+    private final RedisBinaryCodec codec = new RedisBinaryCodec(
+            new AbstractJooqBaseConfiguration(JsonMapper.builder().build()) {}.binaryTypeRegistry());
+
+    private Object roundTrip(Object value) {
+        return this.codec.decodeValue(this.codec.encodeValue(value));
+    }
+
+    @Test
+    void roundTripsUnsignedNumbers() {
+        List<Object> values = List.of(
+                ULong.valueOf(0),
+                ULong.valueOf(42),
+                ULong.valueOf(Long.MAX_VALUE),
+                ULong.MAX,
+                UInteger.valueOf(0),
+                UInteger.MAX,
+                UShort.valueOf(7),
+                UShort.MAX);
+
+        for (Object value : values) assertThat(this.roundTrip(value)).isEqualTo(value);
+    }
+
+    @Test
+    void roundTripsUnsignedNumbersInCollections() {
+        List<ULong> ids = Arrays.asList(ULong.valueOf(1), null, ULong.MAX);
+        Map<ULong, List<ULong>> related = Map.of(ULong.valueOf(9), List.of(ULong.valueOf(10), ULong.valueOf(11)));
+
+        assertThat(this.roundTrip(ids)).isEqualTo(ids);
+        assertThat(this.roundTrip(related)).isEqualTo(related);
+    }
+}
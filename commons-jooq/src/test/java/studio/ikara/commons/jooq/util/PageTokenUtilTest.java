@@ -0,0 +1,79 @@
+package studio.ikara.commons.jooq.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PageTokenUtilTest {
+
+    private static final String SIGNATURE = "CREATED_AT-ID+";
+
+    private static byte[] bytes(String token) {
+        return Base64.getUrlDecoder().decode(token);
+    }
+
+    private static String token(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    @Test
+    void roundTripsValues() {
+        List<String> values = Arrays.asList("2025-06-01T10:30:00", null, "", "ünïcödé ✓", "42");
+
+        String token = PageTokenUtil.encode(SIGNATURE, values);
+
+        assertThat(token).matches("[A-Za-z0-9_-]+");
+        assertThat(PageTokenUtil.decode(token, SIGNATURE)).isEqualTo(values);
+        assertThat(PageTokenUtil.decode(PageTokenUtil.encode(SIGNATURE, List.of()), SIGNATURE))
+                .isEmpty();
+    }
+
+    @Test
+    void rejectsATokenIssuedForAnotherSort() {
+        String token = PageTokenUtil.encode(SIGNATURE, List.of("1"));
+
+        assertThatThrownBy(() -> PageTokenUtil.decode(token, "CREATED_AT+ID+"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsATruncatedToken() {
+        byte[] bytes = bytes(PageTokenUtil.encode(SIGNATURE, List.of("2025-06-01T10:30:00", "42")));
+
+        for (int length = 0; length < bytes.length; length++) {
+            String truncated = token(Arrays.copyOf(bytes, length));
+
+            assertThatThrownBy(() -> PageTokenUtil.decode(truncated, SIGNATURE))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void rejectsTrailingBytes() {
+        byte[] bytes = bytes(PageTokenUtil.encode(SIGNATURE, List.of("42")));
+        String padded = token(Arrays.copyOf(bytes, bytes.length + 1));
+
+        assertThatThrownBy(() -> PageTokenUtil.decode(padded, SIGNATURE))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("trailing");
+    }
+
+    @Test
+    void rejectsAnUnknownVersion() {
+        byte[] bytes = bytes(PageTokenUtil.encode(SIGNATURE, List.of("42")));
+        bytes[0] = 2;
+
+        assertThatThrownBy(() -> PageTokenUtil.decode(token(bytes), SIGNATURE))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsTextThatIsNotAToken() {
+        assertThatThrownBy(() -> PageTokenUtil.decode("not a token!", SIGNATURE))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,86 @@
+package studio.ikara.commons.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads what {@link BinaryOutput} wrote, from the buffer Lettuce hands to the codec.
+ */
+public final class BinaryInput {
+
+    private final ByteBuffer buffer;
+
+    private final RedisBinaryCodec codec;
+
+    BinaryInput(ByteBuffer buffer, RedisBinaryCodec codec) {
+        this.buffer = buffer;
+        this.codec = codec;
+    }
+
+    public byte readByte() {
+        return this.buffer.get();
+    }
+
+    public int readInt() {
+        return this.buffer.getInt();
+    }
+
+    public long readLong() {
+        return this.buffer.getLong();
+    }
+
+    public int readVarInt() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = this.buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalStateException("Malformed varint in cached value");
+    }
+
+    public long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = this.buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalStateException("Malformed varlong in cached value");
+    }
+
+    public long readSignedVarLong() {
+        long value = this.readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public String readString() {
+        int length = this.readVarInt();
+
+        if (this.buffer.hasArray()) {
+            String value = new String(
+                    this.buffer.array(),
+                    this.buffer.arrayOffset() + this.buffer.position(),
+                    length,
+                    StandardCharsets.UTF_8);
+            this.buffer.position(this.buffer.position() + length);
+            return value;
+        }
+
+        return new String(this.readRaw(length), StandardCharsets.UTF_8);
+    }
+
+    public byte[] readBytes() {
+        return this.readRaw(this.readVarInt());
+    }
+
+    public Object readValue() {
+        return this.codec.readValue(this);
+    }
+
+    private byte[] readRaw(int length) {
+        byte[] value = new byte[length];
+        this.buffer.get(value);
+        return value;
+    }
+}
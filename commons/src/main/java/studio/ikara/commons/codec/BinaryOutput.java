@@ -0,0 +1,67 @@
+package studio.ikara.commons.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the primitives of the {@link RedisBinaryCodec} format straight into the target buffer. Variable length
+ * integers are unsigned LEB128, seven bits to a byte.
+ */
+public final class BinaryOutput {
+
+    private final ByteBuf buffer;
+
+    private final RedisBinaryCodec codec;
+
+    BinaryOutput(ByteBuf buffer, RedisBinaryCodec codec) {
+        this.buffer = buffer;
+        this.codec = codec;
+    }
+
+    public void writeByte(int value) {
+        this.buffer.writeByte(value);
+    }
+
+    public void writeInt(int value) {
+        this.buffer.writeInt(value);
+    }
+
+    public void writeLong(long value) {
+        this.buffer.writeLong(value);
+    }
+
+    public void writeVarInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            this.buffer.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        this.buffer.writeByte(value);
+    }
+
+    public void writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            this.buffer.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        this.buffer.writeByte((int) value);
+    }
+
+    public void writeSignedVarLong(long value) {
+        this.writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeString(String value) {
+        this.writeVarInt(ByteBufUtil.utf8Bytes(value));
+        this.buffer.writeCharSequence(value, StandardCharsets.UTF_8);
+    }
+
+    public void writeBytes(byte[] value) {
+        this.writeVarInt(value.length);
+        this.buffer.writeBytes(value);
+    }
+
+    public void writeValue(Object value) {
+        this.codec.writeValue(this, value);
+    }
+}
@@ -0,0 +1,30 @@
+package studio.ikara.commons.codec;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Writes and reads one registered type for {@link RedisBinaryCodec}. The adapter owns the layout of the value; nested
+ * values go through {@link BinaryOutput#writeValue(Object)} and {@link BinaryInput#readValue()}.
+ */
+public interface BinaryTypeAdapter<T> {
+
+    void write(T value, BinaryOutput out);
+
+    T read(BinaryInput in);
+
+    static <T> BinaryTypeAdapter<T> of(BiConsumer<T, BinaryOutput> writer, Function<BinaryInput, T> reader) {
+        return new BinaryTypeAdapter<>() {
+
+            @Override
+            public void write(T value, BinaryOutput out) {
+                writer.accept(value, out);
+            }
+
+            @Override
+            public T read(BinaryInput in) {
+                return reader.apply(in);
+            }
+        };
+    }
+}
@@ -0,0 +1,129 @@
+package studio.ikara.commons.codec;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The types {@link RedisBinaryCodec} writes by id instead of by Java serialization. The id is what goes on the wire, so
+ * it must be the same on every node and must not be reused for another type. Ids below 100 are taken by the commons
+ * modules.
+ *
+ * <p>A type registered without an adapter is written field by field: its own and inherited instance fields, except
+ * transient ones, in declaration order, preceded by a fingerprint of their names and types. A value written before
+ * the class changed fails to decode and is treated as a cache miss.
+ */
+public class BinaryTypeRegistry {
+
+    public record Registration(int id, Class<?> type, BinaryTypeAdapter<Object> adapter) {}
+
+    private final Map<Class<?>, Registration> byType = new ConcurrentHashMap<>();
+
+    private final Map<Integer, Registration> byId = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public <T> BinaryTypeRegistry register(int id, Class<T> type, BinaryTypeAdapter<T> adapter) {
+        Registration registration = new Registration(id, type, (BinaryTypeAdapter<Object>) adapter);
+
+        Registration existing = this.byId.putIfAbsent(id, registration);
+        if (existing != null)
+            throw new IllegalArgumentException(
+                    "Binary type id " + id + " is already registered to " + existing.type().getName());
+
+        this.byType.put(type, registration);
+        return this;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public <T> BinaryTypeRegistry register(int id, Class<T> type) {
+        if (type.isEnum()) return this.register(id, type, (BinaryTypeAdapter<T>) enumAdapter((Class<Enum>) type));
+
+        return this.register(id, type, new ReflectiveAdapter<>(type));
+    }
+
+    public Registration forType(Class<?> type) {
+        return this.byType.get(type);
+    }
+
+    public Registration forId(int id) {
+        return this.byId.get(id);
+    }
+
+    private static <E extends Enum<E>> BinaryTypeAdapter<E> enumAdapter(Class<E> type) {
+        return BinaryTypeAdapter.of(
+                (value, out) -> out.writeString(value.name()), in -> Enum.valueOf(type, in.readString()));
+    }
+
+    private static final class ReflectiveAdapter<T> implements BinaryTypeAdapter<T> {
+
+        private final Class<T> type;
+
+        private final Constructor<T> constructor;
+
+        private final Field[] fields;
+
+        private final int fingerprint;
+
+        private ReflectiveAdapter(Class<T> type) {
+            this.type = type;
+
+            try {
+                this.constructor = type.getDeclaredConstructor();
+                this.constructor.setAccessible(true);
+            } catch (NoSuchMethodException ex) {
+                throw new IllegalArgumentException(type.getName() + " needs a no-argument constructor", ex);
+            }
+
+            Deque<Class<?>> hierarchy = new ArrayDeque<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) hierarchy.push(c);
+
+            List<Field> instanceFields = new ArrayList<>();
+            List<String> signature = new ArrayList<>();
+            for (Class<?> c : hierarchy) {
+                for (Field field : c.getDeclaredFields()) {
+                    if ((field.getModifiers() & (Modifier.STATIC | Modifier.TRANSIENT)) != 0 || field.isSynthetic())
+                        continue;
+
+                    field.setAccessible(true);
+                    instanceFields.add(field);
+                    signature.add(field.getName() + ":" + field.getType().getName());
+                }
+            }
+
+            this.fields = instanceFields.toArray(Field[]::new);
+            this.fingerprint = signature.hashCode();
+        }
+
+        @Override
+        public void write(T value, BinaryOutput out) {
+            out.writeInt(this.fingerprint);
+
+            try {
+                for (Field field : this.fields) out.writeValue(field.get(value));
+            } catch (IllegalAccessException ex) {
+                throw new IllegalStateException("Unable to read fields of " + this.type.getName(), ex);
+            }
+        }
+
+        @Override
+        public T read(BinaryInput in) {
+            int written = in.readInt();
+            if (written != this.fingerprint)
+                throw new IllegalStateException("Cached " + this.type.getName() + " was written with different fields");
+
+            try {
+                T value = this.constructor.newInstance();
+                for (Field field : this.fields) field.set(value, in.readValue());
+                return value;
+            } catch (ReflectiveOperationException ex) {
+                throw new IllegalStateException("Unable to create " + this.type.getName() + " from cache", ex);
+            }
+        }
+    }
+}
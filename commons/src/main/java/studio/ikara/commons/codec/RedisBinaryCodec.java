@@ -0,0 +1,288 @@
+package studio.ikara.commons.codec;
+
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.ToByteBufEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import studio.ikara.commons.service.CacheObject;
+
+/**
+ * Compact binary codec for cache values. Every value starts with a one byte tag: JDK scalars, strings, dates and
+ * collections have their own, numbers and lengths are varints, and {@link CacheObject} is written inline. Types in the
+ * {@link BinaryTypeRegistry} are written by id through their adapter. Anything else that is {@link Serializable} falls
+ * back to Java serialization, and anything that isn't fails to encode.
+ *
+ * <p>Values are encoded directly into the pooled buffer Lettuce allocates for the command. Decode failures are thrown,
+ * so the cache logs them and treats the entry as a miss rather than silently returning null.
+ */
+public class RedisBinaryCodec implements RedisCodec<String, Object>, ToByteBufEncoder<String, Object> {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte SHORT = 5;
+    private static final byte BYTE = 6;
+    private static final byte DOUBLE = 7;
+    private static final byte FLOAT = 8;
+    private static final byte CHAR = 9;
+    private static final byte STRING = 10;
+    private static final byte BYTES = 11;
+    private static final byte LIST = 12;
+    private static final byte SET = 13;
+    private static final byte MAP = 14;
+    private static final byte LOCAL_DATE_TIME = 15;
+    private static final byte LOCAL_DATE = 16;
+    private static final byte INSTANT = 17;
+    private static final byte CACHE_OBJECT = 18;
+    private static final byte REGISTERED = 19;
+    private static final byte SERIALIZED = 20;
+
+    private static final int ESTIMATED_VALUE_SIZE = 256;
+
+    private final BinaryTypeRegistry registry;
+
+    public RedisBinaryCodec(BinaryTypeRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public String decodeKey(ByteBuffer bytes) {
+        return StandardCharsets.UTF_8.decode(bytes).toString();
+    }
+
+    @Override
+    public Object decodeValue(ByteBuffer bytes) {
+        if (!bytes.hasRemaining()) return null;
+
+        byte version = bytes.get();
+        if (version != FORMAT_VERSION)
+            throw new IllegalStateException("Unknown binary cache format version : " + version);
+
+        return this.readValue(new BinaryInput(bytes, this));
+    }
+
+    @Override
+    public ByteBuffer encodeKey(String key) {
+        return StandardCharsets.UTF_8.encode(key);
+    }
+
+    @Override
+    public ByteBuffer encodeValue(Object value) {
+        ByteBuf buffer = Unpooled.buffer(ESTIMATED_VALUE_SIZE);
+        this.encodeValue(value, buffer);
+        return buffer.nioBuffer();
+    }
+
+    @Override
+    public void encodeKey(String key, ByteBuf target) {
+        target.writeCharSequence(key, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void encodeValue(Object value, ByteBuf target) {
+        target.writeByte(FORMAT_VERSION);
+        this.writeValue(new BinaryOutput(target, this), value);
+    }
+
+    @Override
+    public int estimateSize(Object keyOrValue) {
+        if (keyOrValue instanceof String key) return ByteBufUtil.utf8MaxBytes(key);
+
+        return ESTIMATED_VALUE_SIZE;
+    }
+
+    void writeValue(BinaryOutput out, Object value) {
+        switch (value) {
+            case null -> out.writeByte(NULL);
+            case Boolean b -> out.writeByte(b ? TRUE : FALSE);
+            case Integer i -> this.writeSigned(out, INT, i);
+            case Long l -> this.writeSigned(out, LONG, l);
+            case Short s -> this.writeSigned(out, SHORT, s);
+            case Byte b -> this.writeSigned(out, BYTE, b);
+            case Double d -> {
+                out.writeByte(DOUBLE);
+                out.writeLong(Double.doubleToRawLongBits(d));
+            }
+            case Float f -> {
+                out.writeByte(FLOAT);
+                out.writeInt(Float.floatToRawIntBits(f));
+            }
+            case Character c -> {
+                out.writeByte(CHAR);
+                out.writeVarInt(c);
+            }
+            case String s -> {
+                out.writeByte(STRING);
+                out.writeString(s);
+            }
+            case byte[] bytes -> {
+                out.writeByte(BYTES);
+                out.writeBytes(bytes);
+            }
+            case LocalDateTime dateTime -> {
+                out.writeByte(LOCAL_DATE_TIME);
+                out.writeSignedVarLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+                out.writeVarInt(dateTime.getNano());
+            }
+            case LocalDate date -> this.writeSigned(out, LOCAL_DATE, date.toEpochDay());
+            case Instant instant -> {
+                out.writeByte(INSTANT);
+                out.writeSignedVarLong(instant.getEpochSecond());
+                out.writeVarInt(instant.getNano());
+            }
+            case CacheObject co -> {
+                out.writeByte(CACHE_OBJECT);
+                out.writeVarLong(co.getExpiresAt());
+                out.writeVarLong(co.getDelta());
+                this.writeValue(out, co.getObject());
+            }
+            default -> this.writeOther(out, value);
+        }
+    }
+
+    private void writeSigned(BinaryOutput out, byte tag, long value) {
+        out.writeByte(tag);
+        out.writeSignedVarLong(value);
+    }
+
+    private void writeOther(BinaryOutput out, Object value) {
+        BinaryTypeRegistry.Registration registration = this.registry.forType(value.getClass());
+        if (registration != null) {
+            out.writeByte(REGISTERED);
+            out.writeVarInt(registration.id());
+            registration.adapter().write(value, out);
+            return;
+        }
+
+        switch (value) {
+            case List<?> list -> {
+                out.writeByte(LIST);
+                out.writeVarInt(list.size());
+                for (Object element : list) this.writeValue(out, element);
+            }
+            case Set<?> set -> {
+                out.writeByte(SET);
+                out.writeVarInt(set.size());
+                for (Object element : set) this.writeValue(out, element);
+            }
+            case Map<?, ?> map -> {
+                out.writeByte(MAP);
+                out.writeVarInt(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    this.writeValue(out, entry.getKey());
+                    this.writeValue(out, entry.getValue());
+                }
+            }
+            case Serializable serializable -> {
+                out.writeByte(SERIALIZED);
+                out.writeBytes(serialize(serializable));
+            }
+            default ->
+                throw new IllegalArgumentException(
+                        value.getClass().getName() + " is neither registered for the binary codec nor serializable");
+        }
+    }
+
+    Object readValue(BinaryInput in) {
+        byte tag = in.readByte();
+
+        return switch (tag) {
+            case NULL -> null;
+            case TRUE -> Boolean.TRUE;
+            case FALSE -> Boolean.FALSE;
+            case INT -> (int) in.readSignedVarLong();
+            case LONG -> in.readSignedVarLong();
+            case SHORT -> (short) in.readSignedVarLong();
+            case BYTE -> (byte) in.readSignedVarLong();
+            case DOUBLE -> Double.longBitsToDouble(in.readLong());
+            case FLOAT -> Float.intBitsToFloat(in.readInt());
+            case CHAR -> (char) in.readVarInt();
+            case STRING -> in.readString();
+            case BYTES -> in.readBytes();
+            case LIST -> {
+                int size = in.readVarInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) list.add(this.readValue(in));
+                yield list;
+            }
+            case SET -> {
+                int size = in.readVarInt();
+                Set<Object> set = LinkedHashSet.newLinkedHashSet(size);
+                for (int i = 0; i < size; i++) set.add(this.readValue(in));
+                yield set;
+            }
+            case MAP -> {
+                int size = in.readVarInt();
+                Map<Object, Object> map = LinkedHashMap.newLinkedHashMap(size);
+                for (int i = 0; i < size; i++) map.put(this.readValue(in), this.readValue(in));
+                yield map;
+            }
+            case LOCAL_DATE_TIME ->
+                LocalDateTime.ofEpochSecond(in.readSignedVarLong(), in.readVarInt(), ZoneOffset.UTC);
+            case LOCAL_DATE -> LocalDate.ofEpochDay(in.readSignedVarLong());
+            case INSTANT -> Instant.ofEpochSecond(in.readSignedVarLong(), in.readVarInt());
+            case CACHE_OBJECT -> {
+                CacheObject co = new CacheObject();
+                co.setExpiresAt(in.readVarLong());
+                co.setDelta(in.readVarLong());
+                co.setObject(this.readValue(in));
+                yield co;
+            }
+            case REGISTERED -> {
+                int id = in.readVarInt();
+                BinaryTypeRegistry.Registration registration = this.registry.forId(id);
+                if (registration == null)
+                    throw new IllegalStateException("No type registered for binary type id : " + id);
+                yield registration.adapter().read(in);
+            }
+            case SERIALIZED -> deserialize(in.readBytes());
+            default -> throw new IllegalStateException("Unknown binary cache tag : " + tag);
+        };
+    }
+
+    private static byte[] serialize(Serializable value) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream os = new ObjectOutputStream(bytes)) {
+                os.writeObject(value);
+            }
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to serialize " + value.getClass().getName(), ex);
+        }
+    }
+
+    private static Object deserialize(byte[] bytes) {
+        try (ObjectInputStream is = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return is.readObject();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to deserialize a cached value", ex);
+        } catch (ClassNotFoundException ex) {
+            throw new IllegalStateException("Unable to deserialize a cached value", ex);
+        }
+    }
+}
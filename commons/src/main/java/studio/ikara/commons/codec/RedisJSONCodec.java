@@ -1,22 +1,61 @@
 package studio.ikara.commons.codec;
 
-import tools.jackson.core.JacksonException;
-import tools.jackson.core.type.TypeReference;
-import tools.jackson.databind.ObjectMapper;
 import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.ToByteBufEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.springframework.http.HttpStatus;
 import studio.ikara.commons.exception.GenericException;
+import studio.ikara.commons.service.CacheObject;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectReader;
+import tools.jackson.databind.util.ByteBufferBackedInputStream;
+
+/**
+ * Stores values as {@code {"classType": ..., "value": ...}}. The class is written first, so decoding resolves it and
+ * binds the value straight from the buffer in one pass; values written with the class after the value are buffered as
+ * a tree first. Only classes under the allowed package prefixes are resolved, and their readers are cached.
+ *
+ * <p>A {@link CacheObject} is written as the envelope of the object it holds with its {@code expiresAt} and
+ * {@code delta} ahead of the value, so the held object keeps its class instead of coming back as a map.
+ */
+public class RedisJSONCodec implements RedisCodec<String, Object>, ToByteBufEncoder<String, Object> {
 
-public class RedisJSONCodec implements RedisCodec<String, Object> {
+    private static final List<String> DEFAULT_ALLOWED_PREFIXES =
+            List.of("studio.ikara.", "java.lang.", "java.util.", "java.time.", "java.math.", "org.jooq.types.");
+
+    private static final String CLASS_TYPE = "classType";
+    private static final String VALUE = "value";
+    private static final String EXPIRES_AT = "expiresAt";
+    private static final String DELTA = "delta";
+
+    private static final int ESTIMATED_VALUE_SIZE = 512;
 
     private final ObjectMapper objectMapper;
 
+    private final List<String> allowedPrefixes;
+
+    private final Map<String, ObjectReader> readers = new ConcurrentHashMap<>();
+
     public RedisJSONCodec(ObjectMapper objectMapper) {
+        this(objectMapper, DEFAULT_ALLOWED_PREFIXES);
+    }
+
+    public RedisJSONCodec(ObjectMapper objectMapper, List<String> allowedPrefixes) {
         this.objectMapper = objectMapper;
+        this.allowedPrefixes = List.copyOf(allowedPrefixes);
     }
 
     public String decodeKey(ByteBuffer bytes) {
@@ -25,38 +64,135 @@ public class RedisJSONCodec implements RedisCodec<String, Object> {
 
     public Object decodeValue(ByteBuffer bytes) {
 
-        byte[] array = new byte[bytes.remaining()];
-        bytes.get(array);
-
-        String jsonString = new String(array);
+        if (!bytes.hasRemaining()) return null;
 
-        try {
+        int length = bytes.remaining();
 
-            Map<String, Object> map = this.objectMapper.readValue(array, new TypeReference<>() {});
+        try (JsonParser parser = bytes.hasArray()
+                ? this.objectMapper.createParser(bytes.array(), bytes.arrayOffset() + bytes.position(), length)
+                : this.objectMapper.createParser(new ByteBufferBackedInputStream(bytes))) {
 
-            return this.objectMapper.convertValue(
-                    map.get("value"), Class.forName(map.get("classType").toString()));
+            parser.nextToken();
+            return this.readEnvelope(parser);
 
         } catch (Exception e) {
             throw new GenericException(
-                    HttpStatus.INTERNAL_SERVER_ERROR, "Cannot retrive Object from : " + jsonString, e);
+                    HttpStatus.INTERNAL_SERVER_ERROR, "Cannot retrive Object of " + length + " bytes from cache", e);
         }
     }
 
+    private Object readEnvelope(JsonParser parser) {
+
+        if (parser.currentToken() == JsonToken.VALUE_NULL) return null;
+
+        if (parser.currentToken() != JsonToken.START_OBJECT)
+            throw new IllegalStateException("Expected a cache envelope but found " + parser.currentToken());
+
+        String classType = null;
+        CacheObject cacheObject = null;
+        Object value = null;
+        JsonNode pending = null;
+
+        while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+
+            switch (name) {
+                case CLASS_TYPE -> classType = parser.getValueAsString();
+                case EXPIRES_AT -> {
+                    if (cacheObject == null) cacheObject = new CacheObject();
+                    cacheObject.setExpiresAt(parser.getLongValue());
+                }
+                case DELTA -> {
+                    if (cacheObject == null) cacheObject = new CacheObject();
+                    cacheObject.setDelta(parser.getLongValue());
+                }
+                case VALUE -> {
+                    if (cacheObject != null) value = this.readEnvelope(parser);
+                    else if (classType != null) value = this.reader(classType).readValue(parser);
+                    else pending = this.objectMapper.readTree(parser);
+                }
+                default -> parser.skipChildren();
+            }
+        }
+
+        if (cacheObject != null) {
+            cacheObject.setObject(value);
+            return cacheObject;
+        }
+
+        if (pending == null || pending.isNull()) return value;
+
+        if (classType == null) throw new IllegalStateException("Cache envelope has no " + CLASS_TYPE);
+
+        return this.reader(classType).readValue(pending);
+    }
+
+    private ObjectReader reader(String classType) {
+        return this.readers.computeIfAbsent(classType, name -> {
+            if (this.allowedPrefixes.stream().noneMatch(name::startsWith))
+                throw new IllegalStateException("Class is not allowed in the cache : " + name);
+
+            try {
+                return this.objectMapper.readerFor(Class.forName(name));
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("Unknown class in the cache : " + name, e);
+            }
+        });
+    }
+
     public ByteBuffer encodeKey(String key) {
         return StandardCharsets.UTF_8.encode(key);
     }
 
     public ByteBuffer encodeValue(Object value) {
+        ByteBuf buffer = Unpooled.buffer(ESTIMATED_VALUE_SIZE);
+        this.encodeValue(value, buffer);
+        return buffer.nioBuffer();
+    }
 
-        Map<String, Object> map = new HashMap<>();
-        map.put("classType", value.getClass().getName());
-        map.put("value", value);
+    @Override
+    public void encodeKey(String key, ByteBuf target) {
+        target.writeCharSequence(key, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void encodeValue(Object value, ByteBuf target) {
 
-        try {
-            return ByteBuffer.wrap(this.objectMapper.writeValueAsString(map).getBytes());
+        try (JsonGenerator generator = this.objectMapper.createGenerator(new ByteBufOutputStream(target))) {
+            this.writeEnvelope(generator, value);
         } catch (JacksonException e) {
             throw new GenericException(HttpStatus.INTERNAL_SERVER_ERROR, "Cannot convert value to json : " + value, e);
         }
     }
+
+    private void writeEnvelope(JsonGenerator generator, Object value) {
+
+        if (value == null) {
+            generator.writeNull();
+            return;
+        }
+
+        generator.writeStartObject();
+
+        if (value instanceof CacheObject co) {
+            generator.writeNumberProperty(EXPIRES_AT, co.getExpiresAt());
+            generator.writeNumberProperty(DELTA, co.getDelta());
+            generator.writeName(VALUE);
+            this.writeEnvelope(generator, co.getObject());
+        } else {
+            generator.writeStringProperty(CLASS_TYPE, value.getClass().getName());
+            generator.writeName(VALUE);
+            generator.writePOJO(value);
+        }
+
+        generator.writeEndObject();
+    }
+
+    @Override
+    public int estimateSize(Object keyOrValue) {
+        if (keyOrValue instanceof String key) return ByteBufUtil.utf8MaxBytes(key);
+
+        return ESTIMATED_VALUE_SIZE;
+    }
 }
@@ -8,9 +8,11 @@ import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import io.lettuce.core.RedisClient;
-import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.RedisURI;
 import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
 import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
 import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
 import io.lettuce.core.pubsub.api.async.RedisPubSubAsyncCommands;
 import jakarta.annotation.PostConstruct;
@@ -19,13 +21,16 @@ import java.security.SecureRandom;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.cache.CacheManager;
-import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.ByteArrayHttpMessageConverter;
@@ -37,10 +42,16 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import studio.ikara.commons.codec.BinaryTypeRegistry;
+import studio.ikara.commons.codec.RedisBinaryCodec;
 import studio.ikara.commons.codec.RedisJSONCodec;
 import studio.ikara.commons.codec.RedisObjectCodec;
 import studio.ikara.commons.gson.LocalDateTimeAdapter;
 import studio.ikara.commons.jackson.CommonsSerializationModule;
+import studio.ikara.commons.service.cache.CacheObjectWeigher;
+import studio.ikara.commons.service.cache.CacheSpecCaffeineCacheManager;
+import studio.ikara.commons.service.cache.HashRing;
+import studio.ikara.commons.service.cache.RedisNode;
 
 public abstract class AbstractBaseConfiguration implements WebMvcConfigurer {
 
@@ -51,10 +62,23 @@ public abstract class AbstractBaseConfiguration implements WebMvcConfigurer {
     @Value("${redis.url:}")
     private String redisURL;
 
+    @Value("${redis.nodes:}")
+    private List<String> redisNodes;
+
+    @Value("${redis.nodes.virtual:160}")
+    private int redisVirtualNodes;
+
     @Value("${redis.codec:object}")
     private String codecType;
 
-    private RedisCodec<String, Object> objectCodec;
+    @Value("${redis.cache.prefix:unk}")
+    private String redisPrefix;
+
+    @Value("${cache.offheap.size:0}")
+    private long offHeapSize;
+
+    @Value("${cache.offheap.front:10000}")
+    private long offHeapFront;
 
     protected AbstractBaseConfiguration(JsonMapper objectMapper) {
         this.objectMapper = objectMapper;
@@ -66,7 +90,15 @@ public abstract class AbstractBaseConfiguration implements WebMvcConfigurer {
                 .changeDefaultPropertyInclusion(ignored -> JsonInclude.Value.construct(Include.NON_EMPTY, Include.ALWAYS))
                 .addModule(new CommonsSerializationModule())
                 .build();
-        this.objectCodec = "object".equals(codecType) ? new RedisObjectCodec() : new RedisJSONCodec(this.objectMapper);
+    }
+
+    /**
+     * The types the binary redis codec writes by id. Override to add a module's cached types, keeping the ids stable
+     * across releases.
+     */
+    @Bean
+    public BinaryTypeRegistry binaryTypeRegistry() {
+        return new BinaryTypeRegistry();
     }
 
     @PostConstruct
@@ -121,25 +153,81 @@ public abstract class AbstractBaseConfiguration implements WebMvcConfigurer {
 
     @Bean
     public RedisClient redisClient() {
-        if (redisURL == null || redisURL.isBlank()) return null;
+        if ((redisURL == null || redisURL.isBlank()) && this.redisNodes.isEmpty()) return null;
 
-        return RedisClient.create(redisURL);
+        return RedisClient.create();
     }
 
+    /**
+     * The Redis servers the cache tier spreads its entries over: those in redis.nodes, each a Redis URI optionally
+     * followed by #weight, or else the one at redis.url. The first node also keeps the cache bookkeeping, and the
+     * single-connection beans below are its connections.
+     */
     @Bean
-    public RedisAsyncCommands<String, Object> asyncCommands(@Autowired(required = false) RedisClient client) {
+    public HashRing<RedisNode> redisRing(
+            @Autowired(required = false) RedisClient client, RedisCodec<String, Object> redisValueCodec) {
         if (client == null) return null;
 
-        StatefulRedisConnection<String, Object> connection = client.connect(objectCodec);
-        return connection.async();
+        List<String> specs = this.redisNodes.isEmpty() ? List.of(redisURL) : this.redisNodes;
+        List<RedisNode> nodes = specs.stream()
+                .map(spec -> this.connect(client, redisValueCodec, spec.trim()))
+                .toList();
+
+        return new HashRing<>(nodes, RedisNode::name, RedisNode::weight, this.redisVirtualNodes);
+    }
+
+    private RedisNode connect(RedisClient client, RedisCodec<String, Object> objectCodec, String spec) {
+        int hash = spec.lastIndexOf('#');
+        int weight = hash == -1 ? 1 : Integer.parseInt(spec.substring(hash + 1).trim());
+        RedisURI uri = RedisURI.create(hash == -1 ? spec : spec.substring(0, hash).trim());
+
+        return new RedisNode(
+                uri.getHost() + ":" + uri.getPort() + "/" + uri.getDatabase(),
+                weight,
+                client.connect(objectCodec, uri).async(),
+                client.connect(RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE), uri).async(),
+                client.connectPubSub(uri).async(),
+                client.connectPubSub(uri));
+    }
+
+    @Bean
+    public RedisAsyncCommands<String, Object> asyncCommands(
+            @Autowired(required = false) HashRing<RedisNode> redisRing) {
+        if (redisRing == null) return null;
+
+        return redisRing.nodes().getFirst().data();
+    }
+
+    /**
+     * The codec cache values are stored with, for writes that go through the control connection as raw bytes.
+     */
+    @Bean
+    public RedisCodec<String, Object> redisValueCodec(BinaryTypeRegistry binaryTypeRegistry) {
+        return switch (codecType) {
+            case "object" -> new RedisObjectCodec();
+            case "binary" -> new RedisBinaryCodec(binaryTypeRegistry);
+            default -> new RedisJSONCodec(this.objectMapper);
+        };
+    }
+
+    /**
+     * Commands for cache bookkeeping such as generation counters, kept apart from the value codec so counters are plain
+     * integers in Redis and raw bytes can be passed through untouched.
+     */
+    @Bean
+    public RedisAsyncCommands<String, byte[]> controlRedisAsyncCommand(
+            @Autowired(required = false) HashRing<RedisNode> redisRing) {
+        if (redisRing == null) return null;
+
+        return redisRing.nodes().getFirst().control();
     }
 
     @Bean
     public StatefulRedisPubSubConnection<String, String> subConnection(
-            @Autowired(required = false) RedisClient client) {
-        if (client == null) return null;
+            @Autowired(required = false) HashRing<RedisNode> redisRing) {
+        if (redisRing == null) return null;
 
-        return client.connectPubSub();
+        return redisRing.nodes().getFirst().subscriber();
     }
 
     @Bean
@@ -152,10 +240,10 @@ public abstract class AbstractBaseConfiguration implements WebMvcConfigurer {
 
     @Bean
     public RedisPubSubAsyncCommands<String, String> pubRedisAsyncCommand(
-            @Autowired(required = false) RedisClient client) {
-        if (client == null) return null;
+            @Autowired(required = false) HashRing<RedisNode> redisRing) {
+        if (redisRing == null) return null;
 
-        return client.connectPubSub().async();
+        return redisRing.nodes().getFirst().publisher();
     }
 
     @Override
@@ -166,15 +254,30 @@ public abstract class AbstractBaseConfiguration implements WebMvcConfigurer {
                 .maxAge(3600);
     }
 
+    /**
+     * With the off-heap tier on, caches without a maximum of their own keep at most cache.offheap.front entries on the
+     * heap, and the rest only off it.
+     */
     @Bean
     public Caffeine<Object, Object> caffeineConfig() {
-        return Caffeine.newBuilder().expireAfterAccess(Duration.ofMinutes(5));
+        Caffeine<Object, Object> caffeine = Caffeine.newBuilder().expireAfterAccess(Duration.ofMinutes(5));
+        if (this.offHeapSize > 0 && this.offHeapFront > 0) caffeine.maximumSize(this.offHeapFront);
+        return caffeine;
     }
 
     @Bean
-    public CacheManager cacheManager(Caffeine<Object, Object> caffeine) {
-        CaffeineCacheManager caffeineCacheManager = new CaffeineCacheManager();
+    public CacheManager cacheManager(
+            Caffeine<Object, Object> caffeine, Environment environment, RedisCodec<String, Object> redisValueCodec) {
+        Map<String, String> specs = Binder.get(environment)
+                .bind("cache.specs", Bindable.mapOf(String.class, String.class))
+                .orElse(Map.of());
+
+        CacheSpecCaffeineCacheManager caffeineCacheManager =
+                new CacheSpecCaffeineCacheManager(this.redisPrefix, specs, new CacheObjectWeigher(redisValueCodec));
+        caffeineCacheManager.setNegativeSpecification(
+                environment.getProperty("cache.negative.spec", "maximumSize=10000,expireAfterWrite=30s"));
         caffeineCacheManager.setCaffeine(caffeine);
+        if (this.offHeapSize > 0) caffeineCacheManager.setFrontSize(this.offHeapFront);
         return caffeineCacheManager;
     }
 }
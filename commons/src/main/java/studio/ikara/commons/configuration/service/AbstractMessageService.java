@@ -18,6 +18,8 @@ public abstract class AbstractMessageService {
     public static final String CANNOT_BE_UPDATED = "cannot_be_updated";
 
     public static final String OBJECT_NOT_FOUND = "object_not_found";
+    public static final String INVALID_PAGE_TOKEN = "invalid_page_token";
+    public static final String NULLABLE_SORT_KEY = "nullable_sort_key";
     public static final String FIELD_NOT_AVAILABLE =
             " field cannot be updated, it might not be available or unmodifiable";
     protected Map<Locale, ResourceBundle> bundleMap;
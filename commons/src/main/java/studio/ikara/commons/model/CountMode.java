@@ -0,0 +1,19 @@
+package studio.ikara.commons.model;
+
+/**
+ * How the total of a paged read is counted when {@link Query#getCount()} asks for one.
+ */
+public enum CountMode {
+
+    /** A full {@code COUNT(*)} over the filter. */
+    EXACT,
+
+    /** Counts at most {@code dao.count.cap} rows, reporting the cap and an inexact total beyond it. */
+    CAPPED,
+
+    /**
+     * The database's row estimate from the query plan, without reading the rows. This reads the {@code rows} column of
+     * a MySQL {@code EXPLAIN}, and other dialects may report no estimate or a different one.
+     */
+    ESTIMATED
+}
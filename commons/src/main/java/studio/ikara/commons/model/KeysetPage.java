@@ -0,0 +1,40 @@
+package studio.ikara.commons.model;
+
+import java.io.Serial;
+import java.util.List;
+import java.util.Objects;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * A page read with keyset pagination. Rather than a page number it carries the token of the page after it, null on the
+ * last page, to be sent back as {@link Query#getPageToken()}.
+ */
+public class KeysetPage<T> extends QuerySlice<T> {
+
+    @Serial
+    private static final long serialVersionUID = 4308471592830815736L;
+
+    private final String nextPageToken;
+
+    public KeysetPage(
+            List<T> content, Pageable pageable, Long totalElements, Boolean totalExact, String nextPageToken) {
+        super(content, pageable, nextPageToken != null, totalElements, totalExact);
+        this.nextPageToken = nextPageToken;
+    }
+
+    public String getNextPageToken() {
+        return this.nextPageToken;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof KeysetPage<?> other
+                && super.equals(other)
+                && Objects.equals(this.nextPageToken, other.nextPageToken);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + Objects.hashCode(this.nextPageToken);
+    }
+}
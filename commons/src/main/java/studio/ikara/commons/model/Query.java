@@ -23,13 +23,24 @@ public class Query implements Serializable {
     private AbstractCondition condition;
     private int size = 10;
     private int page = 0;
+    private Boolean seek = Boolean.FALSE;
+    private String pageToken;
     private Sort sort = DEFAULT_SORT;
     private Boolean count = Boolean.TRUE;
+    private CountMode countMode = CountMode.EXACT;
     private List<String> fields;
     private Boolean excludeFields = Boolean.FALSE;
     private Boolean eager = Boolean.FALSE;
     private List<String> eagerFields;
 
+    /**
+     * Keyset pagination is used when {@code seek} is set or a {@code pageToken} from a previous page is given, and
+     * {@code page} is then ignored. It can only sort by non-null fields.
+     */
+    public boolean isKeyset() {
+        return Boolean.TRUE.equals(this.seek) || this.pageToken != null;
+    }
+
     public Pageable getPageable() {
         return PageRequest.of(this.page, this.size, this.sort);
     }
@@ -0,0 +1,48 @@
+package studio.ikara.commons.model;
+
+import java.io.Serial;
+import java.util.List;
+import java.util.Objects;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+/**
+ * A page of a {@link Query} read that is not an exactly counted offset page. The total is null when
+ * {@link Query#getCount()} is false and otherwise carries whether it is exact.
+ */
+public class QuerySlice<T> extends SliceImpl<T> {
+
+    @Serial
+    private static final long serialVersionUID = 2875019637341520914L;
+
+    private final Long totalElements;
+
+    private final Boolean totalExact;
+
+    public QuerySlice(List<T> content, Pageable pageable, boolean hasNext, Long totalElements, Boolean totalExact) {
+        super(content, pageable, hasNext);
+        this.totalElements = totalElements;
+        this.totalExact = totalExact;
+    }
+
+    public Long getTotalElements() {
+        return this.totalElements;
+    }
+
+    public Boolean getTotalExact() {
+        return this.totalExact;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof QuerySlice<?> other
+                && super.equals(other)
+                && Objects.equals(this.totalElements, other.totalElements)
+                && Objects.equals(this.totalExact, other.totalExact);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + Objects.hash(this.totalElements, this.totalExact);
+    }
+}
@@ -1,13 +1,17 @@
 package studio.ikara.commons.service;
 
+import io.lettuce.core.codec.RedisCodec;
 import java.io.Serial;
 import java.io.Serializable;
-import lombok.AllArgsConstructor;
+import java.nio.ByteBuffer;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
 public class CacheObject implements Serializable {
 
@@ -15,4 +19,39 @@ public class CacheObject implements Serializable {
     private static final long serialVersionUID = 1616868309218812235L;
 
     private Object object; // NOSONAR
+
+    // Epoch millis at which the shared tier drops this entry, 0 when unknown.
+    private long expiresAt;
+
+    // Millis the value took to compute, used to decide how early to recompute it.
+    private long delta;
+
+    // Length of the last encoding, for the weigher. The bytes themselves are not kept.
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient int encodedSize;
+
+    public CacheObject(Object object) {
+        this.object = object;
+    }
+
+    /**
+     * This entry as the codec encodes it, in a new array the caller owns.
+     */
+    public byte[] encode(RedisCodec<String, Object> codec) {
+        ByteBuffer buffer = codec.encodeValue(this);
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+
+        this.encodedSize = bytes.length;
+        return bytes;
+    }
+
+    /**
+     * The length of the last {@link #encode(RedisCodec)}, 0 when the entry was never encoded.
+     */
+    public int encodedSize() {
+        return this.encodedSize;
+    }
 }
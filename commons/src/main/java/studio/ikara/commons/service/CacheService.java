@@ -1,31 +1,91 @@
 package studio.ikara.commons.service;
 
+import io.lettuce.core.ExpireArgs;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.SetArgs;
 import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.codec.RedisCodec;
 import io.lettuce.core.pubsub.RedisPubSubAdapter;
-import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
-import io.lettuce.core.pubsub.api.async.RedisPubSubAsyncCommands;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.cache.CacheType;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import studio.ikara.commons.function.Tuple2;
+import studio.ikara.commons.function.Tuples;
+import studio.ikara.commons.service.cache.CacheGenerations;
+import studio.ikara.commons.service.cache.CacheKey;
+import studio.ikara.commons.service.cache.CacheMetrics;
+import studio.ikara.commons.service.cache.CachePreloader;
+import studio.ikara.commons.service.cache.CacheSpecCaffeineCacheManager;
+import studio.ikara.commons.service.cache.CacheStamps;
+import studio.ikara.commons.service.cache.EvictionBatcher;
+import studio.ikara.commons.service.cache.HashRing;
+import studio.ikara.commons.service.cache.HotKeyTracker;
+import studio.ikara.commons.service.cache.OffHeapCache;
+import studio.ikara.commons.service.cache.RedisCircuitBreaker;
+import studio.ikara.commons.service.cache.RedisNode;
+import studio.ikara.commons.service.cache.SingleFlightLoader;
+import studio.ikara.commons.service.cache.SnapshotStore;
+import studio.ikara.commons.service.cache.TagIndex;
 import studio.ikara.commons.thread.VirtualThreadExecutor;
 
 @Service
 public class CacheService extends RedisPubSubAdapter<String, String> {
 
+    private static final Logger logger = LoggerFactory.getLogger(CacheService.class);
+
+    private static final byte[] NO_VERSION = {'0'};
+
+    // KEYS: version key, entry key or namespace hash. ARGV: expected version, ttl, value, layout, hash field.
+    private static final String VERSIONED_SET =
+            """
+            if (redis.call('GET', KEYS[1]) or '0') ~= ARGV[1] then return 0 end
+            if ARGV[4] == 'key' then
+                redis.call('SET', KEYS[2], ARGV[3], 'PX', ARGV[2])
+                return 1
+            end
+            redis.call('HSET', KEYS[2], ARGV[5], ARGV[3])
+            if ARGV[4] == 'field' then
+                redis.call('HPEXPIRE', KEYS[2], ARGV[2], 'FIELDS', 1, ARGV[5])
+            else
+                redis.call('PEXPIRE', KEYS[2], ARGV[2], 'NX')
+                redis.call('PEXPIRE', KEYS[2], ARGV[2], 'GT')
+            end
+            return 1
+            """;
+
     @Autowired
     private CacheManager cacheManager;
 
@@ -33,13 +93,13 @@ public class CacheService extends RedisPubSubAdapter<String, String> {
     private RedisAsyncCommands<String, Object> redisAsyncCommand;
 
     @Autowired(required = false)
-    @Qualifier("subRedisAsyncCommand") private RedisPubSubAsyncCommands<String, String> subAsyncCommand;
+    @Qualifier("controlRedisAsyncCommand") private RedisAsyncCommands<String, byte[]> controlAsyncCommand;
 
     @Autowired(required = false)
-    @Qualifier("pubRedisAsyncCommand") private RedisPubSubAsyncCommands<String, String> pubAsyncCommand;
+    private HashRing<RedisNode> redisRing;
 
     @Autowired(required = false)
-    private StatefulRedisPubSubConnection<String, String> subConnect;
+    private RedisCodec<String, Object> valueCodec;
 
     @Value("${redis.channel:evictionChannel}")
     private String channel;
@@ -50,216 +110,1319 @@ public class CacheService extends RedisPubSubAdapter<String, String> {
     @Value("${spring.cache.type:}")
     private CacheType cacheType;
 
+    @Value("${redis.cache.timeout:500}")
+    private long redisTimeout;
+
+    @Value("${redis.cache.layout:hash}")
+    private String redisLayout;
+
+    @Value("${redis.cache.layout.legacyRead:false}")
+    private boolean legacyRead;
+
+    @Value("${redis.cache.hashFieldExpiry:false}")
+    private boolean hashFieldExpiry;
+
+    @Value("${redis.cache.ttl:1800000}")
+    private long defaultTTL;
+
+    @Value("${redis.cache.generation.refresh:30000}")
+    private long generationRefresh;
+
+    @Value("${redis.cache.lease.ttl:0}")
+    private long leaseTTL;
+
+    @Value("${redis.cache.lease.wait:50}")
+    private long leaseWait;
+
+    @Value("${redis.eviction.batch.window:5}")
+    private long evictionWindow;
+
+    @Value("${redis.eviction.batch.size:500}")
+    private int evictionBatchSize;
+
+    @Value("${redis.cache.ttl.jitter:0.1}")
+    private double ttlJitter;
+
+    @Value("${cache.refreshAhead:false}")
+    private boolean refreshAhead;
+
+    @Value("${cache.refreshAhead.beta:1.0}")
+    private double refreshAheadBeta;
+
+    @Value("${cache.negative.ttl:30000}")
+    private long negativeTTL;
+
+    @Value("${cache.versioned:false}")
+    private boolean versioned;
+
+    @Value("${redis.breaker.failures:5}")
+    private int breakerFailures;
+
+    @Value("${redis.breaker.open:10000}")
+    private long breakerOpenMillis;
+
+    @Value("${cache.degraded.ttl:30000}")
+    private long degradedTTL;
+
+    @Value("${cache.snapshot.file:}")
+    private String snapshotFile;
+
+    @Value("${cache.snapshot.caches:}")
+    private List<String> snapshotCaches;
+
+    @Value("${cache.snapshot.maxAge:600000}")
+    private long snapshotMaxAge;
+
+    @Value("${cache.snapshot.batch:500}")
+    private int snapshotBatch;
+
+    @Value("${cache.snapshot.concurrency:4}")
+    private int snapshotConcurrency;
+
+    @Value("${cache.preload:false}")
+    private boolean preload;
+
+    @Value("${cache.offheap.size:0}")
+    private long offHeapSize;
+
+    @Value("${cache.offheap.segments:16}")
+    private int offHeapSegments;
+
+    @Value("${cache.hotKeys.count:0}")
+    private int hotKeyCount;
+
+    @Value("${cache.hotKeys.sample:8}")
+    private int hotKeySample;
+
+    @Value("${cache.hotKeys.threshold:1000}")
+    private int hotKeyThreshold;
+
+    @Value("${cache.hotKeys.width:4096}")
+    private int hotKeyWidth;
+
+    @Value("${cache.hotKeys.pin:false}")
+    private boolean pinHotKeys;
+
+    @Value("${cache.hotKeys.pin.refresh:300000}")
+    private long pinRefresh;
+
+    @Autowired(required = false)
+    private List<CachePreloader> preloaders;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<String, Long> cacheTTLs = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, String> cacheNames = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Cache> negativeCaches = new ConcurrentHashMap<>();
+
+    private final CacheStamps stamps = new CacheStamps();
+
+    private CacheMetrics metrics = new CacheMetrics(null);
+
+    private EvictionBatcher evictionBatcher;
+
+    private CacheGenerations generations;
+
+    private TagIndex tags;
+
+    private SingleFlightLoader loader;
+
+    private SnapshotStore snapshots;
+
+    // The first node's, which also guards the bookkeeping commands sent to that node.
+    private RedisCircuitBreaker breaker = new RedisCircuitBreaker(0, 0L, () -> {});
+
+    private Map<String, RedisCircuitBreaker> breakers = Map.of();
+
+    private OffHeapCache offHeap;
+
+    private HotKeyTracker hotKeys;
+
+    private final ConcurrentHashMap<String, ConcurrentHashMap<CacheKey, Pinned>> pins = new ConcurrentHashMap<>();
+
+    private record Pinned(CacheObject co, long refreshAt) {}
+
     @PostConstruct
     public void registerEviction() {
+        this.metrics = new CacheMetrics(this.meterRegistry);
+
+        // A breaker per node, so one unreachable server doesn't fail commands for the others.
+        if (this.redisRing != null) {
+            Map<String, RedisCircuitBreaker> nodeBreakers = new HashMap<>();
+            for (RedisNode node : this.redisRing.nodes())
+                nodeBreakers.put(
+                        node.name(),
+                        new RedisCircuitBreaker(
+                                this.breakerFailures, this.breakerOpenMillis, () -> this.recovered(node.name())));
+            this.breakers = Map.copyOf(nodeBreakers);
+            this.breaker = this.breakers.get(this.redisRing.nodes().getFirst().name());
+        }
+
+        // Generation counters and tag sets are kept on the first node.
+        RedisNode first = this.redisRing == null ? null : this.redisRing.nodes().getFirst();
+        this.generations = new CacheGenerations(this.redisPrefix, this.generationRefresh, first, this::redis);
+        this.tags = new TagIndex(
+                this.redisPrefix, this.defaultTTL, this::getTTL, this.stamps, this.metrics, first, this::redis);
+        this.loader = new SingleFlightLoader(
+                this.leaseTTL, this.leaseWait, this.redisRing, this::redis, this.metrics, this::lookup);
+
+        if (!this.snapshotFile.isBlank() && this.valueCodec != null)
+            this.snapshots = new SnapshotStore(
+                    Path.of(this.snapshotFile),
+                    this.snapshotCaches,
+                    this.snapshotMaxAge,
+                    this.snapshotBatch,
+                    this.snapshotConcurrency,
+                    this.cacheManager,
+                    this.valueCodec,
+                    this.stamps,
+                    this.generations,
+                    this::cacheName,
+                    this.redisRing == null ? null : this::getAllFromRedis);
+
+        this.evictionBatcher =
+                new EvictionBatcher(this.evictionWindow, this.evictionBatchSize, this::publishEvictions);
+
+        // Entries are kept off the heap with the Redis value codec, binary being the compact one, so the tier needs a
+        // codec even on a node without Redis.
+        if (this.offHeapSize > 0 && this.valueCodec != null && this.cacheType != CacheType.NONE)
+            this.offHeap = new OffHeapCache(this.offHeapSize, this.offHeapSegments, this.valueCodec);
+
+        if (this.hotKeyCount > 0)
+            this.hotKeys =
+                    new HotKeyTracker(this.hotKeyWidth, this.hotKeyCount, this.hotKeyThreshold, this.hotKeySample);
+
         if (redisAsyncCommand == null || this.cacheType == CacheType.NONE) return;
 
-        subAsyncCommand.subscribe(channel);
-        subConnect.addListener(this);
+        // Caches with a refreshAfterWrite spec reload from the shared tier, keeping the old value if that fails.
+        if (this.cacheManager instanceof CacheSpecCaffeineCacheManager specManager)
+            specManager.setReloader((cacheName, key) -> this.readFromRedis(cacheName, key.toString())
+                    .thenApply(obj -> obj instanceof CacheObject ? obj : null));
+
+        // Evictions are published on every node, so each arrives once per node. Applying one is idempotent, and this
+        // way they still get through while any node is up.
+        for (RedisNode node : this.redisRing.nodes()) {
+            node.subscriber().addListener(this);
+            node.subscriber().async().subscribe(channel);
+        }
+    }
+
+    @PreDestroy
+    public void flushEvictions() {
+        if (this.evictionBatcher != null) this.evictionBatcher.flush();
+    }
+
+    @PreDestroy
+    public void releaseOffHeap() {
+        if (this.offHeap != null) this.offHeap.close();
+    }
+
+    @PreDestroy
+    public void saveSnapshot() {
+        if (this.snapshots != null) this.snapshots.save();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (this.cacheType == CacheType.NONE) return;
+
+        CompletableFuture<Integer> restoring =
+                this.snapshots == null ? CompletableFuture.completedFuture(0) : this.snapshots.load();
+
+        restoring
+                .thenCompose(restored -> {
+                    if (restored > 0) logger.info("Restored {} cache entries from {}", restored, this.snapshotFile);
+                    if (!this.preload || this.preloaders == null) return CompletableFuture.completedFuture(null);
+
+                    return CompletableFuture.allOf(this.preloaders.stream()
+                            .map(CachePreloader::preload)
+                            .toArray(CompletableFuture[]::new));
+                })
+                .exceptionally(ex -> {
+                    logger.warn("Unable to warm up the caches", ex);
+                    return null;
+                });
+    }
+
+    private byte[] encode(CacheObject co) {
+        return co.encode(this.valueCodec);
     }
 
     public CompletableFuture<Boolean> evict(String cName, String key) {
         if (this.cacheType == CacheType.NONE) return VirtualThreadExecutor.completedFuture(true);
 
-        String cacheName = this.redisPrefix + "-" + cName;
+        return this.evictKey(this.cacheName(cName), CacheKey.of(key));
+    }
+
+    private CompletableFuture<Boolean> evictKey(String cacheName, CacheKey key) {
+        this.caffineCacheEvict(cacheName, key);
+
+        if (this.redisRing == null || this.evictionBatcher == null) return VirtualThreadExecutor.completedFuture(true);
+
+        return this.evictionBatcher.add(cacheName + ":" + key);
+    }
 
-        if (pubAsyncCommand != null) {
-            CompletableFuture<Boolean> publishFuture = CompletableFuture.completedFuture(
-                            pubAsyncCommand.publish(this.channel, cacheName + ":" + key))
-                    .thenApply(e -> true);
-            CompletableFuture<Boolean> deleteFuture = CompletableFuture.completedFuture(
-                            redisAsyncCommand.hdel(cacheName, key))
-                    .thenApply(e -> true);
-            return publishFuture.thenCompose(evicted -> deleteFuture);
+    /** Deletes evicted entries from the shared tier and announces them in one message. */
+    private CompletableFuture<Boolean> publishEvictions(Set<String> entries) {
+        Map<String, List<String>> keysByCache = new LinkedHashMap<>();
+        for (String entry : entries) {
+            int colon = entry.indexOf(':');
+            keysByCache
+                    .computeIfAbsent(entry.substring(0, colon), name -> new ArrayList<>())
+                    .add(entry.substring(colon + 1));
         }
 
-        return VirtualThreadExecutor.supplyAsync(() -> this.caffineCacheEvict(cacheName, key))
-                .exceptionally(t -> false);
+        CompletableFuture<?>[] deletes = keysByCache.entrySet().stream()
+                .map(e -> this.bumpVersions(e.getKey(), e.getValue())
+                        .thenCompose(bumped -> this.deleteFromRedis(e.getKey(), e.getValue())))
+                .toArray(CompletableFuture[]::new);
+
+        return CompletableFuture.allOf(deletes)
+                .thenCompose(deleted -> this.publish(EvictionBatcher.message(entries)))
+                .thenApply(published -> {
+                    this.metrics.evictionSent(entries.size());
+                    return true;
+                })
+                .exceptionally(ex -> {
+                    logger.debug("Unable to evict {} entries in redis", entries.size(), ex);
+                    keysByCache.keySet().forEach(name -> this.metrics.forCache(name).redisError());
+                    return false;
+                });
     }
 
-    private Boolean caffineCacheEvict(String cacheName, String key) {
+    private Boolean caffineCacheEvict(String cacheName, CacheKey key) {
+        this.stamps.invalidate(cacheName, key);
         Cache cache = cacheManager.getCache(cacheName);
         if (cache != null) cache.evictIfPresent(key);
+        this.dropLocal(cacheName, key);
+        this.forgetAbsent(cacheName, key);
         return true;
     }
 
     public CompletableFuture<Boolean> evict(String cacheName, Object... keys) {
         if (this.cacheType == CacheType.NONE) return VirtualThreadExecutor.completedFuture(true);
 
-        return makeKey(keys).thenCompose(e -> this.evict(cacheName, e));
+        return this.evictKey(this.cacheName(cacheName), CacheKey.of(keys));
     }
 
+    /**
+     * The text form of the key made of the given parts, as it is stored in Redis.
+     */
     public CompletableFuture<String> makeKey(Object... args) {
-        if (args.length == 1) return VirtualThreadExecutor.completedFuture(args[0].toString());
+        return VirtualThreadExecutor.completedFuture(CacheKey.of(args).toString());
+    }
+
+    private String cacheName(String cName) {
+        String cacheName = this.cacheNames.get(cName);
+        if (cacheName != null) return cacheName;
 
-        return VirtualThreadExecutor.supplyAsync(() -> Arrays.stream(args)
-                .filter(Objects::nonNull)
-                .map(Object::toString)
-                .collect(Collectors.joining()));
+        return this.cacheNames.computeIfAbsent(cName, name -> this.redisPrefix + "-" + name);
     }
 
     public <T> CompletableFuture<T> put(String cName, T value, Object... keys) {
         if (this.cacheType == CacheType.NONE) return VirtualThreadExecutor.completedFuture(value);
 
-        String cacheName = this.redisPrefix + "-" + cName;
+        String cacheName = this.cacheName(cName);
 
-        makeKey(keys).thenCompose(key -> {
-            CacheObject co = new CacheObject(value);
+        this.store(cacheName, CacheKey.of(keys), this.newEntry(cacheName, value, 0L));
+
+        return VirtualThreadExecutor.completedFuture(value);
+    }
 
-            Cache cache = this.cacheManager.getCache(cacheName);
-            if (cache != null) cache.put(key, co);
+    /**
+     * Caches the value like {@link #put(String, Object, Object...)} and attaches the given tags to its key, such as
+     * {@code role:42} or {@code client:7}, so {@link #evictByTag(String)} can later evict it with every other key that
+     * carries the tag.
+     */
+    public <T> CompletableFuture<T> putTagged(String cName, T value, Collection<String> tags, Object... keys) {
+        if (this.cacheType == CacheType.NONE) return VirtualThreadExecutor.completedFuture(value);
 
-            if (redisAsyncCommand == null) return VirtualThreadExecutor.completedFuture(true);
+        String cacheName = this.cacheName(cName);
+        CacheKey key = CacheKey.of(keys);
 
-            return CompletableFuture.completedFuture(redisAsyncCommand.hset(cacheName, key, co))
-                    .thenApply(cObject -> true)
-                    .exceptionally(ex -> true);
-        });
+        this.tags.tag(cacheName, key, tags);
+        this.store(cacheName, key, this.newEntry(cacheName, value, 0L));
 
         return VirtualThreadExecutor.completedFuture(value);
     }
 
+    private CacheObject newEntry(String cacheName, Object value, long delta) {
+        long ttl = this.getTTL(cacheName);
+        if (this.isDegraded()) ttl = Math.min(ttl, this.degradedTTL);
+        if (this.ttlJitter > 0) ttl -= (long) (ttl * this.ttlJitter * ThreadLocalRandom.current().nextDouble());
+
+        CacheObject co = new CacheObject(value);
+        co.setExpiresAt(System.currentTimeMillis() + ttl);
+        co.setDelta(delta);
+        return co;
+    }
+
+    private void store(String cacheName, CacheKey key, CacheObject co) {
+        this.store(cacheName, key, co, null);
+    }
+
+    private void store(String cacheName, CacheKey key, CacheObject co, CompletableFuture<Version> version) {
+        // Encoded once for the off-heap tier and Redis, and not kept on the entry Caffeine holds.
+        byte[] value = this.offHeap != null || redisAsyncCommand != null ? this.encode(co) : null;
+
+        this.putLocal(this.cacheManager.getCache(cacheName), cacheName, key, co, value);
+        this.forgetAbsent(cacheName, key);
+        if (this.hotKeys != null) this.hotKeys.record(cacheName, key);
+
+        if (redisAsyncCommand == null) return;
+
+        CompletableFuture<?> written = version == null
+                ? this.writeToRedis(cacheName, key.toString(), co, value)
+                : version.thenCompose(v -> this.writeToRedisIfVersion(cacheName, key.toString(), co, value, v));
+
+        written.exceptionally(ex -> {
+            logger.debug("Unable to write {} to {} in redis", key, cacheName, ex);
+            this.metrics.forCache(cacheName).redisError();
+            return null;
+        });
+    }
+
+    /** Caches a loaded value unless its key was evicted since the stamp was taken. */
+    private void storeIfCurrent(
+            String cacheName, CacheKey key, long stamp, CompletableFuture<Version> version, CacheObject co) {
+        if (!this.stamps.isCurrent(cacheName, key, stamp)) return;
+
+        this.store(cacheName, key, co, version);
+
+        if (this.stamps.isCurrent(cacheName, key, stamp)) return;
+
+        Cache cache = this.cacheManager.getCache(cacheName);
+        if (cache != null) cache.evictIfPresent(key);
+        this.dropLocal(cacheName, key);
+    }
+
+    /** Drops a key from the off-heap tier and the pinned hot keys. */
+    private void dropLocal(String cacheName, CacheKey key) {
+        if (this.offHeap != null) this.offHeap.remove(cacheName, key);
+        ConcurrentHashMap<CacheKey, Pinned> pinned = this.pins.get(cacheName);
+        if (pinned != null) pinned.remove(key);
+    }
+
+    private void dropLocal(String cacheName) {
+        if (this.offHeap != null) this.offHeap.clear(cacheName);
+        this.pins.remove(cacheName);
+    }
+
+    private void putLocal(Cache cache, String cacheName, CacheKey key, CacheObject co) {
+        this.putLocal(cache, cacheName, key, co, null);
+    }
+
+    /** Puts an entry in Caffeine and, when enabled, in the off-heap tier behind it. */
+    private void putLocal(Cache cache, String cacheName, CacheKey key, CacheObject co, byte[] value) {
+        if (cache == null) return;
+
+        cache.put(key, co);
+        if (this.offHeap != null) this.offHeap.put(cacheName, key, co, value);
+        ConcurrentHashMap<CacheKey, Pinned> pinned = this.pins.get(cacheName);
+        if (pinned != null) pinned.computeIfPresent(key, (k, p) -> new Pinned(co, p.refreshAt()));
+    }
+
     @SuppressWarnings("unchecked")
     public <T> CompletableFuture<T> get(String cName, Object... keys) {
         if (this.cacheType == CacheType.NONE) return CompletableFuture.completedFuture(null);
 
-        String cacheName = this.redisPrefix + "-" + cName;
+        String cacheName = this.cacheName(cName);
+        CacheKey key = CacheKey.of(keys);
 
-        return this.makeKey(keys)
-                .thenCompose(key -> {
-                    Cache cache = this.cacheManager.getCache(cacheName);
-                    if (cache == null) return CompletableFuture.completedFuture(null);
+        // A local hit completes here, on the caller's thread.
+        CacheObject local = this.getLocal(cacheName, key);
+        if (local != null) return CompletableFuture.completedFuture((T) local.getObject());
 
-                    CacheObject value = cache.get(key, CacheObject.class);
-                    if (value != null) return CompletableFuture.completedFuture(value);
+        return this.getRemote(cacheName, key).thenApply(e -> e != null ? (T) e.getObject() : null);
+    }
 
-                    if (redisAsyncCommand == null) return CompletableFuture.completedFuture(null);
+    private CompletableFuture<CacheObject> lookup(String cacheName, CacheKey key) {
+        CacheObject local = this.getLocal(cacheName, key);
+        if (local != null) return CompletableFuture.completedFuture(local);
 
-                    return CompletableFuture.completedFuture(redisAsyncCommand.hget(cacheName, key))
-                            .thenApply(obj -> {
-                                if (obj != null) {
-                                    CacheObject redisValue = (CacheObject) obj;
-                                    cache.put(key, redisValue);
-                                    return redisValue;
-                                }
-                                return null;
-                            })
-                            .exceptionally(ex -> null);
-                })
-                .thenApply(e -> e != null ? (T) e.getObject() : null);
+        return this.getRemote(cacheName, key);
+    }
+
+    private CacheObject getLocal(String cacheName, CacheKey key) {
+        Cache cache = this.cacheManager.getCache(cacheName);
+        if (cache == null) return null;
+
+        CacheObject pinned = this.getPinned(cache, cacheName, key);
+        if (pinned != null) return pinned;
+
+        CacheObject value = cache.get(key, CacheObject.class);
+        if (value == null) return this.getOffHeap(cache, cacheName, key);
+
+        if (!this.isUsable(value)) {
+            cache.evictIfPresent(key);
+            return null;
+        }
+
+        this.metrics.forCache(cacheName).localHit();
+        this.track(cache, cacheName, key, value);
+        return value;
+    }
+
+    /** Reads a Caffeine miss from the off-heap tier, promoting a hit back into Caffeine. */
+    private CacheObject getOffHeap(Cache cache, String cacheName, CacheKey key) {
+        if (this.offHeap == null) return null;
+
+        CacheObject value = this.offHeap.get(cacheName, key);
+        if (value == null || !this.isUsable(value)) return null;
+
+        this.metrics.forCache(cacheName).offHeapHit();
+        cache.put(key, value);
+        this.track(cache, cacheName, key, value);
+        return value;
+    }
+
+    /** The hottest keys, counted when {@code cache.hotKeys.count} is set. */
+    public CompletableFuture<List<HotKeyTracker.HotKey>> getHotKeys() {
+        if (this.hotKeys == null) return VirtualThreadExecutor.completedFuture(List.of());
+
+        return VirtualThreadExecutor.completedFuture(this.hotKeys.hotKeys().stream()
+                .map(hot -> new HotKeyTracker.HotKey(
+                        hot.cacheName().substring(this.redisPrefix.length() + 1), hot.key(), hot.estimate()))
+                .toList());
+    }
+
+    /**
+     * Counts a read and, with {@code cache.hotKeys.pin}, pins the entry once its key is hot, so it is served after
+     * Caffeine drops it and read again only every {@code cache.hotKeys.pin.refresh}. Evictions unpin as they evict.
+     */
+    private void track(Cache cache, String cacheName, CacheKey key, CacheObject co) {
+        if (this.hotKeys == null || !this.hotKeys.record(cacheName, key) || !this.pinHotKeys) return;
+
+        ConcurrentHashMap<CacheKey, Pinned> cachePins = this.pins.get(cacheName);
+        if (cachePins != null && cachePins.containsKey(key)) return;
+        if (this.pins.values().stream().mapToInt(Map::size).sum() >= this.hotKeyCount) return;
+
+        if (cachePins == null) cachePins = this.pins.computeIfAbsent(cacheName, name -> new ConcurrentHashMap<>());
+        Pinned pinned = new Pinned(co, System.currentTimeMillis() + this.pinRefresh);
+        if (cachePins.putIfAbsent(key, pinned) != null) return;
+
+        // An eviction clears Caffeine before it unpins, so if the entry is still there any eviction unpins after this.
+        if (cache.get(key, CacheObject.class) != co) cachePins.remove(key, pinned);
+    }
+
+    private CacheObject getPinned(Cache cache, String cacheName, CacheKey key) {
+        if (this.pins.isEmpty()) return null;
+
+        ConcurrentHashMap<CacheKey, Pinned> cachePins = this.pins.get(cacheName);
+        Pinned pinned = cachePins == null ? null : cachePins.get(key);
+        if (pinned == null) return null;
+
+        long now = System.currentTimeMillis();
+        long expiresAt = pinned.co().getExpiresAt();
+        if ((expiresAt > 0 && expiresAt <= now) || !this.isUsable(pinned.co())) {
+            cachePins.remove(key, pinned);
+            return null;
+        }
+
+        if (now >= pinned.refreshAt()
+                && cachePins.replace(key, pinned, new Pinned(pinned.co(), now + this.pinRefresh)))
+            this.refreshPinned(cache, cacheName, key, cachePins);
+
+        this.metrics.forCache(cacheName).localHit();
+        this.hotKeys.record(cacheName, key);
+        return pinned.co();
+    }
+
+    /** Re-reads a pinned key from the shared tier, unpinning it once it is cold or gone. */
+    private void refreshPinned(
+            Cache cache, String cacheName, CacheKey key, ConcurrentHashMap<CacheKey, Pinned> cachePins) {
+        if (!this.hotKeys.isHot(cacheName, key)) {
+            cachePins.remove(key);
+            return;
+        }
+
+        if (redisAsyncCommand == null) return;
+
+        long stamp = this.stamps.stamp(cacheName, key);
+        this.getFromRedis(cacheName, key.toString()).thenAccept(value -> {
+            if (!this.stamps.isCurrent(cacheName, key, stamp)) return;
+
+            if (value == null) {
+                cachePins.remove(key);
+                return;
+            }
+
+            cachePins.computeIfPresent(key, (k, p) -> new Pinned(value, p.refreshAt()));
+            cache.put(key, value);
+        });
+    }
+
+    /** While every Redis node is down, local entries are trusted only for {@code cache.degraded.ttl}. */
+    private boolean isUsable(CacheObject co) {
+        if (!this.isDegraded()) return true;
+
+        long now = System.currentTimeMillis();
+        if (now - this.degradedSince() < this.degradedTTL) return true;
+
+        long remaining = co.getExpiresAt() - now;
+        return remaining > 0 && remaining <= this.degradedTTL;
+    }
+
+    private CompletableFuture<CacheObject> getRemote(String cacheName, CacheKey key) {
+        Cache cache = this.cacheManager.getCache(cacheName);
+        if (cache == null) return CompletableFuture.completedFuture(null);
+
+        CacheMetrics.Meters meters = this.metrics.forCache(cacheName);
+        long stamp = this.stamps.stamp(cacheName, key);
+
+        return this.getFromRedis(cacheName, key.toString()).thenApply(redisValue -> {
+            if (redisValue == null) {
+                meters.miss();
+                return null;
+            }
+
+            meters.remoteHit();
+            if (!this.stamps.isCurrent(cacheName, key, stamp)) return redisValue;
+
+            this.putLocal(cache, cacheName, key, redisValue);
+            this.track(cache, cacheName, key, redisValue);
+            return redisValue;
+        });
+    }
+
+    /** Completes with null on a miss, a timeout or any Redis or decoding failure. */
+    private CompletableFuture<CacheObject> getFromRedis(String cacheName, String key) {
+        if (redisAsyncCommand == null) return CompletableFuture.completedFuture(null);
+
+        return this.readFromRedis(cacheName, key)
+                .thenApply(obj -> obj instanceof CacheObject co ? co : null)
+                .exceptionally(ex -> {
+                    logger.debug("Unable to read {} from {} in redis", key, cacheName, ex);
+                    this.metrics.forCache(cacheName).redisError();
+                    return null;
+                });
+    }
+
+    /** Whether each entry is a string key of its own, {@code namespace:key}, rather than a hash field. */
+    private boolean isKeyLayout() {
+        return "key".equals(this.redisLayout);
+    }
+
+    /** The node an entry lives on, by its cache's name in the hash layout and by cache name and key in the other. */
+    private RedisNode node(String cacheName, String key) {
+        return this.redisRing.node(key == null || !this.isKeyLayout() ? cacheName : cacheName + ":" + key);
+    }
+
+    /** Indexes of the given keys grouped by the node each lives on. */
+    private Map<RedisNode, List<Integer>> byNode(String cacheName, String[] keys) {
+        Map<RedisNode, List<Integer>> indexes = new LinkedHashMap<>();
+        for (int i = 0; i < keys.length; i++)
+            indexes.computeIfAbsent(this.node(cacheName, keys[i]), node -> new ArrayList<>()).add(i);
+        return indexes;
     }
 
+    /** One MGET per node, with the replies put back in request order. */
     @SuppressWarnings("unchecked")
+    private CompletableFuture<List<KeyValue<String, Object>>> mget(
+            String cacheName, String namespace, String[] fields) {
+        KeyValue<String, Object>[] values = new KeyValue[fields.length];
+
+        CompletableFuture<?>[] reads = this.byNode(cacheName, fields).entrySet().stream()
+                .map(e -> {
+                    List<Integer> indexes = e.getValue();
+                    String[] entryKeys = indexes.stream().map(i -> namespace + ":" + fields[i]).toArray(String[]::new);
+                    return this.redis(e.getKey(), () -> e.getKey().data().mget(entryKeys)).thenAccept(replies -> {
+                        for (int i = 0; i < replies.size(); i++) values[indexes.get(i)] = replies.get(i);
+                    });
+                })
+                .toArray(CompletableFuture[]::new);
+
+        return CompletableFuture.allOf(reads).thenApply(read -> Arrays.asList(values));
+    }
+
+    private CompletableFuture<Long> publish(String message) {
+        List<CompletableFuture<Long>> published = this.redisRing.nodes().stream()
+                .map(node -> this.redis(node, () -> node.publisher().publish(this.channel, message)))
+                .toList();
+
+        return CompletableFuture.allOf(published.toArray(CompletableFuture[]::new))
+                .thenApply(sent -> published.stream().mapToLong(CompletableFuture::join).sum());
+    }
+
+    /** With {@code redis.cache.layout.legacyRead}, reads through to, and migrates from, the unversioned hashes. */
+    private CompletableFuture<Object> readFromRedis(String cacheName, String key) {
+        RedisNode node = this.node(cacheName, key);
+        RedisAsyncCommands<String, Object> commands = node.data();
+        CompletableFuture<Object> read =
+                this.generations.namespace(cacheName).thenCompose(namespace -> this.isKeyLayout()
+                        ? this.redis(node, () -> commands.get(namespace + ":" + key))
+                        : this.redis(node, () -> commands.hget(namespace, key)));
+
+        if (!this.legacyRead) return read;
+
+        return read.thenCompose(obj -> {
+            if (obj != null) return CompletableFuture.completedFuture(obj);
+
+            return this.redis(() -> redisAsyncCommand.hget(cacheName, key)).thenApply(legacy -> {
+                if (legacy instanceof CacheObject co) this.writeToRedis(cacheName, key, co, this.encode(co));
+                return legacy;
+            });
+        });
+    }
+
+    private CompletableFuture<?> writeToRedis(String cacheName, String key, CacheObject co, byte[] value) {
+        long ttl = this.remainingTTL(cacheName, co);
+        RedisNode node = this.node(cacheName, key);
+        RedisAsyncCommands<String, byte[]> commands = node.control();
+
+        return this.generations.namespace(cacheName).thenCompose(namespace -> {
+            if (this.isKeyLayout())
+                return this.redis(node, () -> commands.set(namespace + ":" + key, value, SetArgs.Builder.px(ttl)));
+
+            CompletableFuture<Boolean> written = this.redis(node, () -> commands.hset(namespace, key, value));
+            CompletableFuture<?> expiry = this.extendExpiry(node, namespace, ttl);
+            if (!this.hashFieldExpiry) return written.thenCombine(expiry, (w, e) -> w);
+
+            return written.thenCompose(added -> this.redis(node, () -> commands.hpexpire(namespace, ttl, key)));
+        });
+    }
+
+    // The namespace hash lives as long as it keeps being written, so the hashes of older generations expire. NX gives a
+    // new hash its TTL and GT only ever lengthens it, so a short-lived entry can't expire the others early.
+    private CompletableFuture<?> extendExpiry(RedisNode node, String namespace, long ttl) {
+        RedisAsyncCommands<String, byte[]> commands = node.control();
+        return CompletableFuture.allOf(
+                this.redis(node, () -> commands.pexpire(namespace, ttl, ExpireArgs.Builder.nx())),
+                this.redis(node, () -> commands.pexpire(namespace, ttl, ExpireArgs.Builder.gt())));
+    }
+
+    // With cache.versioned, a load writes its value only while the entry's version, which evictions bump, is unchanged.
+    private record Version(String namespace, byte[] value) {}
+
+    private String versionKey(String cacheName, String key) {
+        return "version:" + cacheName + ":" + key;
+    }
+
+    private CompletableFuture<Version> readVersion(String cacheName, CacheKey key) {
+        if (!this.versioned || redisAsyncCommand == null || controlAsyncCommand == null || this.valueCodec == null)
+            return null;
+
+        RedisNode node = this.node(cacheName, key.toString());
+
+        return this.generations.namespace(cacheName)
+                .thenCombine(
+                        this.redis(node, () -> node.control().get(this.versionKey(cacheName, key.toString()))),
+                        (namespace, value) -> new Version(namespace, value == null ? NO_VERSION : value));
+    }
+
+    private CompletableFuture<Boolean> writeToRedisIfVersion(
+            String cacheName, String key, CacheObject co, byte[] value, Version version) {
+        boolean keyLayout = this.isKeyLayout();
+        String[] keys = {
+            this.versionKey(cacheName, key), keyLayout ? version.namespace() + ":" + key : version.namespace()
+        };
+        String layout = keyLayout ? "key" : this.hashFieldExpiry ? "field" : "hash";
+
+        RedisNode node = this.node(cacheName, key);
+
+        return this.redis(node, () -> node.control().eval(
+                VERSIONED_SET,
+                ScriptOutputType.BOOLEAN,
+                keys,
+                version.value(),
+                Long.toString(this.remainingTTL(cacheName, co)).getBytes(StandardCharsets.US_ASCII),
+                value,
+                layout.getBytes(StandardCharsets.US_ASCII),
+                key.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private CompletableFuture<?> bumpVersions(String cacheName, List<String> keys) {
+        if (!this.versioned || controlAsyncCommand == null) return CompletableFuture.completedFuture(null);
+
+        long ttl = this.getTTL(cacheName);
+        CompletableFuture<?>[] bumps = new CompletableFuture[keys.size() * 2];
+        for (int i = 0; i < keys.size(); i++) {
+            String versionKey = this.versionKey(cacheName, keys.get(i));
+            RedisNode node = this.node(cacheName, keys.get(i));
+            bumps[2 * i] = this.redis(node, () -> node.control().incr(versionKey));
+            bumps[2 * i + 1] = this.redis(node, () -> node.control().pexpire(versionKey, ttl));
+        }
+        return CompletableFuture.allOf(bumps);
+    }
+
+    private CompletableFuture<?> deleteFromRedis(String cacheName, List<String> keys) {
+        String[] fields = keys.toArray(String[]::new);
+
+        CompletableFuture<?> deleted = this.generations.namespace(cacheName).thenCompose(namespace -> {
+            if (!this.isKeyLayout()) {
+                RedisNode node = this.node(cacheName, null);
+                return this.redis(node, () -> node.data().hdel(namespace, fields));
+            }
+
+            CompletableFuture<?>[] unlinks = this.byNode(cacheName, fields).entrySet().stream()
+                    .map(e -> {
+                        String[] entryKeys =
+                                e.getValue().stream().map(i -> namespace + ":" + fields[i]).toArray(String[]::new);
+                        return this.redis(e.getKey(), () -> e.getKey().data().unlink(entryKeys));
+                    })
+                    .toArray(CompletableFuture[]::new);
+            return CompletableFuture.allOf(unlinks);
+        });
+
+        if (!this.legacyRead) return deleted;
+
+        // Entries of the legacy layout were only ever written to the first node.
+        return deleted.thenCompose(removed -> this.redis(() -> redisAsyncCommand.hdel(cacheName, fields)));
+    }
+
+    private CompletableFuture<Long> nextGeneration(String cacheName) {
+        CompletableFuture<Long> generation = this.generations.next(cacheName);
+
+        if (!this.legacyRead) return generation;
+
+        return generation.thenCompose(next ->
+                this.redis(() -> redisAsyncCommand.unlink(cacheName)).thenApply(unlinked -> next));
+    }
+
+    /** Deletes matching keys with SCAN and UNLINK rather than KEYS and DEL. */
+    private CompletableFuture<Long> unlinkMatching(String pattern) {
+        return this.unlinkMatching(ScanCursor.INITIAL, ScanArgs.Builder.matches(pattern).limit(1000), 0L);
+    }
+
+    private CompletableFuture<Long> unlinkMatching(ScanCursor cursor, ScanArgs args, long unlinkedSoFar) {
+        return this.redis(() -> redisAsyncCommand.scan(cursor, args)).thenCompose(page -> {
+            List<String> keys = page.getKeys();
+
+            CompletableFuture<Long> unlinked = keys.isEmpty()
+                    ? CompletableFuture.completedFuture(0L)
+                    : this.redis(() -> redisAsyncCommand.unlink(keys.toArray(String[]::new)));
+
+            return unlinked.thenCompose(count -> page.isFinished()
+                    ? CompletableFuture.completedFuture(unlinkedSoFar + count)
+                    : this.unlinkMatching(page, args, unlinkedSoFar + count));
+        });
+    }
+
+    private long getTTL(String cacheName) {
+        return this.cacheTTLs.computeIfAbsent(cacheName, name -> {
+            if (!(this.cacheManager instanceof CacheSpecCaffeineCacheManager specManager)) return this.defaultTTL;
+
+            Duration expiry = specManager.getExpireAfterWrite(name);
+            return expiry == null ? this.defaultTTL : expiry.toMillis();
+        });
+    }
+
+    private long remainingTTL(String cacheName, CacheObject co) {
+        if (co.getExpiresAt() <= 0) return this.getTTL(cacheName);
+
+        return Math.max(1L, co.getExpiresAt() - System.currentTimeMillis());
+    }
+
+    private boolean isDegraded() {
+        if (this.breakers.isEmpty()) return false;
+
+        for (RedisCircuitBreaker nodeBreaker : this.breakers.values()) if (!nodeBreaker.isOpen()) return false;
+        return true;
+    }
+
+    private long degradedSince() {
+        long since = 0L;
+        for (RedisCircuitBreaker nodeBreaker : this.breakers.values()) since = Math.max(since, nodeBreaker.openedAt());
+        return since;
+    }
+
+    private void recovered(String nodeName) {
+        this.generations.forget();
+
+        for (Map.Entry<String, RedisCircuitBreaker> e : this.breakers.entrySet())
+            if (!e.getKey().equals(nodeName) && !e.getValue().isOpen()) return;
+
+        this.clearLocalCaches();
+    }
+
+    /** Sends a command to the first node through its circuit breaker. */
+    private <V> CompletableFuture<V> redis(Supplier<RedisFuture<V>> command) {
+        return this.redis(this.breaker, command);
+    }
+
+    private <V> CompletableFuture<V> redis(RedisNode node, Supplier<RedisFuture<V>> command) {
+        return this.redis(this.breakers.getOrDefault(node.name(), this.breaker), command);
+    }
+
+    private <V> CompletableFuture<V> redis(RedisCircuitBreaker nodeBreaker, Supplier<RedisFuture<V>> command) {
+        if (!nodeBreaker.tryAcquire()) return CompletableFuture.failedFuture(RedisCircuitBreaker.OPEN_EXCEPTION);
+
+        CompletableFuture<V> sent;
+        try {
+            sent = command.get().toCompletableFuture().orTimeout(this.redisTimeout, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException ex) {
+            nodeBreaker.onFailure(ex);
+            return CompletableFuture.failedFuture(ex);
+        }
+
+        return sent.whenComplete((value, ex) -> {
+            if (ex == null) nodeBreaker.onSuccess();
+            else nodeBreaker.onFailure(ex);
+        });
+    }
+
     public <T> CompletableFuture<T> cacheValueOrGet(
             String cName, Supplier<CompletableFuture<T>> supplier, Object... keys) {
-        return this.makeKey(keys)
-                .thenCompose(key -> this.get(cName, key).thenCompose(result -> {
-                    if (result != null) return CompletableFuture.completedFuture(result);
+        if (this.cacheType == CacheType.NONE) return supplier.get();
 
-                    return supplier.get().thenCompose(value -> {
-                        if (value == null) return CompletableFuture.completedFuture(null);
+        return this.cacheValueOrLoad(
+                cName,
+                () -> supplier.get().thenApply(value -> value == null ? null : Tuples.of(value, List.<String>of())),
+                false,
+                keys);
+    }
 
-                        return this.put(cName, value, key);
-                    });
-                }))
-                .thenApply(e -> (T) e);
+    /**
+     * Like {@link #cacheValueOrGet(String, Supplier, Object...)}, with a loader that gives the value together with the
+     * tags to attach to it, so {@link #evictByTag(String)} reaches it. A null tuple means nothing was found. A load
+     * during which one of its tags is evicted returns its value without caching it, as it may predate the change.
+     */
+    public <T> CompletableFuture<T> cacheTaggedValueOrGet(
+            String cName, Supplier<CompletableFuture<Tuple2<T, List<String>>>> loader, Object... keys) {
+        if (this.cacheType == CacheType.NONE)
+            return loader.get().thenApply(loaded -> loaded == null ? null : loaded.getT1());
+
+        return this.cacheValueOrLoad(cName, loader, true, keys);
     }
 
     @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> cacheValueOrLoad(
+            String cName, Supplier<CompletableFuture<Tuple2<T, List<String>>>> loader, boolean tagged, Object... keys) {
+        String cacheName = this.cacheName(cName);
+        CacheKey key = CacheKey.of(keys);
+
+        return this.lookup(cacheName, key).thenCompose(entry -> {
+            if (entry == null) return this.load(cacheName, key, loader, tagged);
+
+            if (this.shouldRefreshEarly(entry))
+                VirtualThreadExecutor.supplyAsync(() -> this.load(cacheName, key, loader, tagged)
+                        .exceptionally(ex -> {
+                            logger.debug("Unable to refresh {} in {} ahead of expiry", key, cacheName, ex);
+                            return null;
+                        }));
+
+            return CompletableFuture.completedFuture((T) entry.getObject());
+        });
+    }
+
+    private <T> CompletableFuture<T> load(
+            String cacheName,
+            CacheKey key,
+            Supplier<CompletableFuture<Tuple2<T, List<String>>>> loader,
+            boolean tagged) {
+        return this.loader.load(cacheName, key, () -> {
+            long stamp = this.stamps.stamp(cacheName, key);
+            CompletableFuture<Version> version = this.readVersion(cacheName, key);
+
+            // Read before the load starts, so a tag evicted after it is told apart from one evicted before.
+            CompletableFuture<Long> tagClock = tagged ? this.tags.clock() : CompletableFuture.completedFuture(0L);
+
+            return tagClock.thenCompose(since -> {
+                long start = System.nanoTime();
+                return loader.get()
+                        .whenComplete((loaded, ex) ->
+                                this.metrics.forCache(cacheName).load(System.nanoTime() - start, ex == null))
+                        .thenCompose(loaded -> {
+                            if (loaded == null) return CompletableFuture.completedFuture(null);
+
+                            long delta = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                            T value = loaded.getT1();
+
+                            return this.tags.tagIfCurrent(cacheName, key, loaded.getT2(), since)
+                                    .thenApply(current -> {
+                                        if (current)
+                                            this.storeIfCurrent(
+                                                    cacheName, key, stamp, version,
+                                                    this.newEntry(cacheName, value, delta));
+                                        return value;
+                                    });
+                        });
+            });
+        });
+    }
+
+    /** Probabilistic early expiration (XFetch), so one background load refreshes a hot key. */
+    private boolean shouldRefreshEarly(CacheObject entry) {
+        if (!this.refreshAhead || entry.getExpiresAt() <= 0) return false;
+
+        double headStart =
+                entry.getDelta() * this.refreshAheadBeta * -Math.log(ThreadLocalRandom.current().nextDouble());
+        return System.currentTimeMillis() + headStart >= entry.getExpiresAt();
+    }
+
+    /**
+     * Like {@link #cacheValueOrGet(String, Supplier, Object...)}, also remembering when the supplier finds nothing. A
+     * null result is kept in the cache's negative tier for {@code cache.negative.ttl} and answers lookups until then
+     * or until a value is cached under the key. A failed supplier gives null, as it always has, but is not cached.
+     */
     public <T> CompletableFuture<T> cacheEmptyValueOrGet(
             String cName, Supplier<CompletableFuture<T>> supplier, Object... keys) {
-        return this.makeKey(keys)
-                .thenCompose(key -> this.<CacheObject>get(cName, key).thenCompose(result -> {
-                    if (result != null) return CompletableFuture.completedFuture(result);
-
-                    return supplier.get()
-                            .thenCompose(value -> {
-                                CacheObject cacheObj = new CacheObject(value);
-                                return this.put(cName, cacheObj, key).thenApply(cObject -> cacheObj);
-                            })
-                            .exceptionally(ex -> {
-                                CacheObject nullObj = new CacheObject(null);
-                                this.put(cName, nullObj, key);
-                                return nullObj;
-                            });
-                }))
-                .thenApply(e -> e != null ? (T) e.getObject() : null);
+        return this.rememberAbsentOrGet(cName, supplier, true, keys);
     }
 
-    public CompletableFuture<Boolean> evictAll(String cName) {
+    /**
+     * Calls the supplier and remembers only when it finds nothing, the way
+     * {@link #cacheEmptyValueOrGet(String, Supplier, Object...)} does, while values it finds are returned without
+     * being cached. Suits lookups whose values must not be shared but whose misses are worth saving, such as unknown
+     * user names. Unlike there, a failed supplier's failure is passed on, so it is not taken for a miss.
+     */
+    public <T> CompletableFuture<T> cacheAbsentOrGet(
+            String cName, Supplier<CompletableFuture<T>> supplier, Object... keys) {
+        return this.rememberAbsentOrGet(cName, supplier, false, keys);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> rememberAbsentOrGet(
+            String cName, Supplier<CompletableFuture<T>> supplier, boolean cacheValues, Object... keys) {
+        if (this.cacheType == CacheType.NONE) return supplier.get();
+
+        String cacheName = this.cacheName(cName);
+        CacheKey key = CacheKey.of(keys);
+
+        if (this.isKnownAbsent(cacheName, key)) return CompletableFuture.completedFuture(null);
+
+        if (!cacheValues) {
+            long stamp = this.stamps.stamp(cacheName, key);
+            return supplier.get().thenApply(value -> this.rememberIfAbsent(cacheName, key, stamp, value));
+        }
+
+        return this.lookup(cacheName, key).thenCompose(entry -> {
+            // Earlier versions wrapped the value in a second CacheObject, still readable until those entries expire.
+            if (entry != null) {
+                Object value = entry.getObject();
+                if (value instanceof CacheObject wrapped) value = wrapped.getObject();
+                return CompletableFuture.completedFuture((T) value);
+            }
+
+            return this.loader.load(cacheName, key, () -> {
+                long stamp = this.stamps.stamp(cacheName, key);
+                CompletableFuture<Version> version = this.readVersion(cacheName, key);
+
+                return supplier.get().thenApply(value -> {
+                    if (value != null)
+                        this.storeIfCurrent(cacheName, key, stamp, version, this.newEntry(cacheName, value, 0L));
+                    return this.rememberIfAbsent(cacheName, key, stamp, value);
+                });
+            }).exceptionally(ex -> {
+                logger.debug("Unable to load {} in {}", key, cacheName, ex);
+                return null;
+            });
+        });
+    }
+
+    /**
+     * Remembers a miss in the cache's negative tier, a local cache of its own, named with
+     * {@link CacheSpecCaffeineCacheManager#NEGATIVE_SUFFIX}, that is never written to Redis.
+     */
+    private <T> T rememberIfAbsent(String cacheName, CacheKey key, long stamp, T value) {
+        if (value != null || !this.stamps.isCurrent(cacheName, key, stamp)) return value;
+
+        Cache negative = this.negativeCaches.computeIfAbsent(
+                cacheName, name -> this.cacheManager.getCache(name + CacheSpecCaffeineCacheManager.NEGATIVE_SUFFIX));
+        if (negative == null) return null;
+
+        CacheObject co = new CacheObject(null);
+        co.setExpiresAt(System.currentTimeMillis() + this.negativeTTL);
+        negative.put(key, co);
+        return null;
+    }
+
+    private boolean isKnownAbsent(String cacheName, CacheKey key) {
+        Cache negative = this.negativeCaches.get(cacheName);
+        if (negative == null) return false;
+
+        CacheObject co = negative.get(key, CacheObject.class);
+        if (co == null) return false;
+
+        if (co.getExpiresAt() <= System.currentTimeMillis()) {
+            negative.evictIfPresent(key);
+            return false;
+        }
+
+        this.metrics.forCache(cacheName + CacheSpecCaffeineCacheManager.NEGATIVE_SUFFIX).localHit();
+        return true;
+    }
+
+    private void forgetAbsent(String cacheName, CacheKey key) {
+        Cache negative = this.negativeCaches.get(cacheName);
+        if (negative != null) negative.evictIfPresent(key);
+    }
+
+    public <K, T> CompletableFuture<Map<K, T>> getAll(String cName, Collection<K> keys) {
+        return this.getAll(cName, keys, null);
+    }
+
+    /**
+     * Looks up many single-part keys at once: Caffeine in bulk, then one MGET or HMGET for what it missed, then, when a
+     * loader is given, one call to it for what is left, whose results are cached. Keys that are found nowhere are
+     * absent from the result, which keeps the order of the given keys.
+     */
+    @SuppressWarnings("unchecked")
+    public <K, T> CompletableFuture<Map<K, T>> getAll(
+            String cName, Collection<K> keys, Function<Collection<K>, CompletableFuture<Map<K, T>>> loader) {
+        if (keys.isEmpty()) return CompletableFuture.completedFuture(Map.of());
+
+        if (this.cacheType == CacheType.NONE)
+            return loader == null ? CompletableFuture.completedFuture(Map.of()) : loader.apply(keys);
+
+        String cacheName = this.cacheName(cName);
+        Cache cache = this.cacheManager.getCache(cacheName);
+
+        Map<CacheKey, K> cacheKeys = new LinkedHashMap<>();
+        for (K key : keys) cacheKeys.put(CacheKey.of(key), key);
+
+        Map<CacheKey, CacheObject> found = new HashMap<>();
+        if (cache instanceof CaffeineCache caffeineCache)
+            caffeineCache
+                    .getNativeCache()
+                    .getAllPresent(cacheKeys.keySet())
+                    .forEach((key, value) -> {
+                        if (this.isUsable((CacheObject) value)) found.put((CacheKey) key, (CacheObject) value);
+                    });
+
+        CacheMetrics.Meters meters = this.metrics.forCache(cacheName);
+        meters.localHits(found.size());
+
+        if (cache != null && this.offHeap != null)
+            for (CacheKey key : cacheKeys.keySet()) {
+                if (found.containsKey(key)) continue;
+
+                CacheObject value = this.getOffHeap(cache, cacheName, key);
+                if (value != null) found.put(key, value);
+            }
+
+        List<CacheKey> l1Misses =
+                cacheKeys.keySet().stream().filter(key -> !found.containsKey(key)).toList();
+
+        Map<CacheKey, Long> missStamps = HashMap.newHashMap(l1Misses.size());
+        for (CacheKey key : l1Misses) missStamps.put(key, this.stamps.stamp(cacheName, key));
+
+        return this.getAllFromRedis(cacheName, l1Misses)
+                .thenCompose(redisValues -> {
+                    meters.remoteHits(redisValues.size());
+                    meters.misses(l1Misses.size() - redisValues.size());
+                    redisValues.forEach((key, value) -> {
+                        found.put(key, value);
+                        if (this.stamps.isCurrent(cacheName, key, missStamps.get(key)))
+                            this.putLocal(cache, cacheName, key, value);
+                    });
+
+                    List<K> misses = cacheKeys.entrySet().stream()
+                            .filter(entry -> !found.containsKey(entry.getKey()))
+                            .map(Map.Entry::getValue)
+                            .toList();
+
+                    if (misses.isEmpty() || loader == null) return CompletableFuture.completedFuture(Map.<K, T>of());
+
+                    // The stamps were taken before Redis was read, so a key evicted while the loader ran isn't cached.
+                    return loader.apply(misses).thenApply(loaded -> {
+                        this.putAll(cacheName, loaded, missStamps);
+                        return loaded;
+                    });
+                })
+                .thenApply(loaded -> {
+                    Map<K, T> result = new LinkedHashMap<>();
+                    cacheKeys.forEach((cacheKey, key) -> {
+                        CacheObject co = found.get(cacheKey);
+                        if (co != null && co.getObject() != null) result.put(key, (T) co.getObject());
+                        else if (loaded.containsKey(key)) result.put(key, loaded.get(key));
+                    });
+                    return result;
+                });
+    }
+
+    /**
+     * Caches many single-part keys at once, writing all of them to the shared tier in one pipelined batch. Null values
+     * are skipped. Completes with the given map.
+     */
+    public <K, T> CompletableFuture<Map<K, T>> putAll(String cName, Map<K, T> values) {
+        if (this.cacheType == CacheType.NONE || values.isEmpty()) return CompletableFuture.completedFuture(values);
+
+        this.putAll(this.cacheName(cName), values, null);
+
+        return CompletableFuture.completedFuture(values);
+    }
+
+    /** Like {@link #storeIfCurrent}, skips keys evicted since their stamp was taken. */
+    private <K, T> void putAll(String cacheName, Map<K, T> values, Map<CacheKey, Long> keyStamps) {
+        Cache cache = this.cacheManager.getCache(cacheName);
+
+        boolean needsBytes = this.offHeap != null || redisAsyncCommand != null;
+        Map<String, CacheObject> entries = new LinkedHashMap<>();
+        Map<String, byte[]> encoded = new HashMap<>();
+        values.forEach((key, value) -> {
+            if (value == null) return;
+
+            CacheKey cacheKey = CacheKey.of(key);
+            Long stamp = keyStamps == null ? null : keyStamps.get(cacheKey);
+            if (keyStamps != null && (stamp == null || !this.stamps.isCurrent(cacheName, cacheKey, stamp))) return;
+
+            CacheObject co = this.newEntry(cacheName, value, 0L);
+            byte[] bytes = needsBytes ? this.encode(co) : null;
+            this.putLocal(cache, cacheName, cacheKey, co, bytes);
+
+            if (stamp != null && !this.stamps.isCurrent(cacheName, cacheKey, stamp)) {
+                if (cache != null) cache.evictIfPresent(cacheKey);
+                this.dropLocal(cacheName, cacheKey);
+                return;
+            }
+
+            entries.put(cacheKey.toString(), co);
+            encoded.put(cacheKey.toString(), bytes);
+        });
+
+        if (redisAsyncCommand != null && !entries.isEmpty())
+            this.putAllToRedis(cacheName, entries, encoded).exceptionally(ex -> {
+                logger.debug("Unable to write {} entries to {} in redis", entries.size(), cacheName, ex);
+                this.metrics.forCache(cacheName).redisError();
+                return null;
+            });
+    }
+
+    private CompletableFuture<Map<CacheKey, CacheObject>> getAllFromRedis(String cacheName, List<CacheKey> keys) {
+        if (redisAsyncCommand == null || keys.isEmpty()) return CompletableFuture.completedFuture(Map.of());
+
+        String[] fields = keys.stream().map(CacheKey::toString).toArray(String[]::new);
+
+        return this.generations.namespace(cacheName)
+                .thenCompose(namespace -> {
+                    if (!this.isKeyLayout()) {
+                        RedisNode node = this.node(cacheName, null);
+                        return this.redis(node, () -> node.data().hmget(namespace, fields));
+                    }
+
+                    return this.mget(cacheName, namespace, fields);
+                })
+                .thenApply(values -> {
+                    // Replies come back in request order, and for MGET carry the full entry key, so match by index.
+                    Map<CacheKey, CacheObject> found = new HashMap<>();
+                    for (int i = 0; i < values.size(); i++) {
+                        KeyValue<String, Object> value = values.get(i);
+                        if (value.hasValue() && value.getValue() instanceof CacheObject co) found.put(keys.get(i), co);
+                    }
+                    return found;
+                })
+                .exceptionally(ex -> {
+                    logger.debug("Unable to read {} entries from {} in redis", fields.length, cacheName, ex);
+                    this.metrics.forCache(cacheName).redisError();
+                    return Map.of();
+                });
+    }
+
+    private CompletableFuture<?> putAllToRedis(
+            String cacheName, Map<String, CacheObject> entries, Map<String, byte[]> values) {
+        long ttl = this.getTTL(cacheName);
+
+        return this.generations.namespace(cacheName).thenCompose(namespace -> {
+            if (!this.isKeyLayout()) {
+                String[] fields = entries.keySet().toArray(String[]::new);
+                RedisNode node = this.node(cacheName, null);
+                RedisAsyncCommands<String, byte[]> commands = node.control();
+                CompletableFuture<Long> written = this.redis(node, () -> commands.hset(namespace, values));
+                CompletableFuture<?> expiry = this.hashFieldExpiry
+                        ? this.redis(node, () -> commands.hpexpire(namespace, ttl, fields))
+                        : this.extendExpiry(node, namespace, ttl);
+                return CompletableFuture.allOf(written, expiry);
+            }
+
+            // Every SET is written before any reply is awaited, so the batch goes out pipelined on each node.
+            List<CompletableFuture<String>> writes = new ArrayList<>(entries.size());
+            entries.forEach((key, co) -> {
+                RedisNode node = this.node(cacheName, key);
+                SetArgs expiry = SetArgs.Builder.px(this.remainingTTL(cacheName, co));
+                writes.add(this.redis(node, () -> node.control().set(namespace + ":" + key, values.get(key), expiry)));
+            });
+            return CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new));
+        });
+    }
+
+    /**
+     * Evicts every entry, in any cache, that was cached with the given tag, on this node and on the others.
+     */
+    public CompletableFuture<Boolean> evictByTag(String tag) {
         if (this.cacheType == CacheType.NONE) return VirtualThreadExecutor.completedFuture(true);
 
-        String cacheName = this.redisPrefix + "-" + cName;
-
-        if (pubAsyncCommand != null) {
-            CompletableFuture<Boolean> publishFuture = CompletableFuture.completedFuture(
-                            pubAsyncCommand.publish(this.channel, cacheName + ":*"))
-                    .thenApply(e -> true);
-            CompletableFuture<Boolean> deleteFuture = CompletableFuture.completedFuture(
-                            redisAsyncCommand.del(cacheName))
-                    .thenApply(e -> true)
-                    .exceptionally(ex -> true);
-            return publishFuture.thenCompose(evicted -> deleteFuture);
+        return this.tags
+                .evict(tag)
+                .thenCompose(this::evictEntries)
+                .exceptionally(ex -> {
+                    logger.debug("Unable to evict tag {} in redis", tag, ex);
+                    return false;
+                });
+    }
+
+    private CompletableFuture<Boolean> evictEntries(List<String> entries) {
+        if (entries.isEmpty()) return VirtualThreadExecutor.completedFuture(true);
+
+        List<CompletableFuture<Boolean>> evictions = new ArrayList<>(entries.size());
+        for (String entry : entries) {
+            int colon = entry.indexOf(':');
+            if (colon == -1) continue;
+
+            evictions.add(this.evictKey(entry.substring(0, colon), CacheKey.parse(entry.substring(colon + 1))));
         }
 
-        return VirtualThreadExecutor.supplyAsync(() -> {
-                    this.cacheManager.getCache(cacheName).clear();
+        return CompletableFuture.allOf(evictions.toArray(CompletableFuture[]::new))
+                .thenApply(done -> evictions.stream().allMatch(CompletableFuture::join));
+    }
+
+    public CompletableFuture<Boolean> evictAll(String cName) {
+        if (this.cacheType == CacheType.NONE) return VirtualThreadExecutor.completedFuture(true);
+
+        String cacheName = this.cacheName(cName);
+
+        this.stamps.invalidateAll(cacheName);
+
+        Cache cache = this.cacheManager.getCache(cacheName);
+        if (cache != null) cache.clear();
+        this.dropLocal(cacheName);
+
+        Cache negative = this.negativeCaches.get(cacheName);
+        if (negative != null) negative.clear();
+
+        if (this.redisRing == null) return VirtualThreadExecutor.completedFuture(true);
+
+        return this.nextGeneration(cacheName)
+                .thenCompose(generation ->
+                        this.publish(EvictionBatcher.message(Set.of(cacheName + ":*:" + generation))))
+                .thenApply(published -> {
+                    this.metrics.evictionSent(1);
                     return true;
                 })
-                .exceptionally(evicted -> false);
+                .exceptionally(ex -> {
+                    logger.debug("Unable to evict all of {} in redis", cacheName, ex);
+                    this.metrics.forCache(cacheName).redisError();
+                    return false;
+                });
     }
 
     public CompletableFuture<Boolean> evictAllCaches() {
         if (this.cacheType == CacheType.NONE) return VirtualThreadExecutor.completedFuture(true);
 
-        if (pubAsyncCommand != null) {
-            return CompletableFuture.completedFuture(redisAsyncCommand.keys(this.redisPrefix + "-*"))
-                    .thenCompose(keysFuture -> VirtualThreadExecutor.supplyAsync(() -> {
-                                try {
-                                    List<String> keys = keysFuture.get();
-                                    List<CompletableFuture<Boolean>> futures = new ArrayList<>();
-
-                                    for (String key : keys) {
-                                        CompletableFuture<Boolean> publishFuture = CompletableFuture.completedFuture(
-                                                        pubAsyncCommand.publish(this.channel, key + ":*"))
-                                                .thenApply(e -> true);
-                                        CompletableFuture<Boolean> deleteFuture = CompletableFuture.completedFuture(
-                                                        redisAsyncCommand.del(key))
-                                                .thenApply(e -> true);
-                                        futures.add(publishFuture.thenCompose(evicted -> deleteFuture));
-                                    }
-
-                                    return futures;
-                                } catch (Exception e) {
-                                    throw new RuntimeException(e);
-                                }
-                            })
-                            .thenCompose(futures -> {
-                                if (futures.isEmpty()) {
-                                    return CompletableFuture.completedFuture(List.of(true));
-                                }
-                                return VirtualThreadExecutor.all(futures.stream()
-                                        .map(f -> (Supplier<Boolean>) f::join)
-                                        .toList());
-                            }))
-                    .thenApply(results -> results.stream().allMatch(Boolean::booleanValue));
-        }
+        boolean cleared = this.clearLocalCaches();
 
-        return VirtualThreadExecutor.supplyAsync(() -> {
-            Collection<String> cacheNames = this.cacheManager.getCacheNames();
-            boolean result = true;
-
-            for (String name : cacheNames) {
-                Cache cache = this.cacheManager.getCache(name);
-                if (cache != null) {
-                    cache.clear();
-                } else {
-                    result = false;
-                }
-            }
+        if (this.redisRing == null) return VirtualThreadExecutor.completedFuture(cleared);
 
-            return result;
-        });
+        String allCaches = this.redisPrefix + "-*";
+
+        CompletableFuture<Long> generation = this.generations.nextGlobal();
+
+        if (this.legacyRead)
+            generation = generation.thenCompose(next -> this.unlinkMatching(allCaches).thenApply(unlinked -> next));
+
+        return generation
+                .thenCompose(next -> this.publish(EvictionBatcher.message(Set.of(allCaches + ":*:" + next))))
+                .thenApply(published -> {
+                    this.metrics.evictionSent(1);
+                    return cleared;
+                })
+                .exceptionally(ex -> {
+                    logger.debug("Unable to evict all caches in redis", ex);
+                    return false;
+                });
     }
 
     public CompletableFuture<Collection<String>> getCacheNames() {
@@ -268,20 +1431,64 @@ public class CacheService extends RedisPubSubAdapter<String, String> {
                 .toList());
     }
 
+    @Override
+    public void subscribed(String channel, long count) {
+        // Notices sent while the subscription was down are lost, so the generations are read from Redis again.
+        if (this.channel.equals(channel)) this.generations.forget();
+    }
+
     @Override
     public void message(String channel, String message) {
         if (channel == null || !channel.equals(this.channel)) return;
 
+        // Off the Lettuce event loop, so a large batch doesn't hold up other replies on the connection.
+        VirtualThreadExecutor.supplyAsync(() -> {
+            Set<String> entries = EvictionBatcher.entries(message);
+            this.metrics.evictionReceived(entries.size());
+            entries.forEach(this::applyEviction);
+            return true;
+        });
+    }
+
+    private void applyEviction(String message) {
         int colon = message.indexOf(':');
         if (colon == -1) return;
 
         String cacheName = message.substring(0, colon);
         String cacheKey = message.substring(colon + 1);
+
+        // Whole-cache notices carry the generation the sender moved to, "cacheName:*:generation".
+        long generation = cacheKey.startsWith("*:") ? Long.parseLong(cacheKey.substring(2)) : -1L;
+        if (generation != -1L) cacheKey = "*";
+
+        if (cacheName.equals(this.redisPrefix + "-*")) {
+            if (generation != -1L) this.generations.updateGlobal(generation);
+            this.clearLocalCaches();
+            return;
+        }
+
+        if (generation != -1L) this.generations.update(cacheName, generation);
+
+        Cache negative = this.negativeCaches.get(cacheName);
         Cache cache = this.cacheManager.getCache(cacheName);
-        if (cache == null) return;
 
-        if (cacheKey.equals("*")) cache.clear();
-        else cache.evictIfPresent(cacheKey);
+        if (cacheKey.equals("*")) {
+            this.stamps.invalidateAll(cacheName);
+            if (cache != null) cache.clear();
+            this.dropLocal(cacheName);
+            if (negative != null) negative.clear();
+            return;
+        }
+
+        CacheKey key = CacheKey.parse(cacheKey);
+        this.stamps.invalidate(cacheName, key);
+        if (cache != null) cache.evictIfPresent(key);
+        this.dropLocal(cacheName, key);
+        if (negative != null) negative.evictIfPresent(key);
+    }
+
+    public <T> Function<T, CompletableFuture<T>> evictByTagFunction(String tag) {
+        return v -> this.evictByTag(tag).thenApply(e -> v);
     }
 
     public <T> Function<T, CompletableFuture<T>> evictAllFunction(String cacheName) {
@@ -307,7 +1514,11 @@ public class CacheService extends RedisPubSubAdapter<String, String> {
         return v -> this.evict(cacheName, keyMakingFunction.apply(v)).thenApply(evicted -> v);
     }
 
-    private Boolean get() {
+    private Boolean clearLocalCaches() {
+        this.stamps.invalidateAll();
+        if (this.offHeap != null) this.offHeap.clearAll();
+        this.pins.clear();
+
         Collection<String> cacheNames = this.cacheManager.getCacheNames();
         boolean result = true;
 
@@ -0,0 +1,112 @@
+package studio.ikara.commons.service.cache;
+
+import io.lettuce.core.KeyValue;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The generations that name each cache's namespace in the shared tier, {@code cacheName:global.generation}. Both
+ * counters live on the first Redis node, so clearing a cache, or every cache, is one INCR however many entries it
+ * holds. They are mirrored here and moved on by eviction notices, and the mirror is dropped every {@code refresh}
+ * millis and whenever notices may have been lost, so a lost one can't pin an old generation.
+ */
+public class CacheGenerations {
+
+    private final String prefix;
+
+    private final long refresh;
+
+    private final RedisNode node;
+
+    private final RedisSender sender;
+
+    private final ConcurrentHashMap<String, Long> generations = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, String> namespaces = new ConcurrentHashMap<>();
+
+    private final AtomicLong global = new AtomicLong();
+
+    private volatile long readAt = System.currentTimeMillis();
+
+    public CacheGenerations(String prefix, long refresh, RedisNode node, RedisSender sender) {
+        this.prefix = prefix;
+        this.refresh = refresh;
+        this.node = node;
+        this.sender = sender;
+    }
+
+    public static String key(String name) {
+        return "generation:" + name;
+    }
+
+    public CompletableFuture<String> namespace(String cacheName) {
+        if (System.currentTimeMillis() - this.readAt >= this.refresh) this.expire();
+
+        String namespace = this.namespaces.get(cacheName);
+        if (namespace != null) return CompletableFuture.completedFuture(namespace);
+
+        return this.sender
+                .send(this.node, () -> this.node.control().mget(key(this.prefix), key(cacheName)))
+                .thenApply(values -> this.read(cacheName, toLong(values.get(0)), toLong(values.get(1))));
+    }
+
+    /** The namespace last read for the cache, empty when it wasn't read since the mirror was dropped. */
+    public String current(String cacheName) {
+        return this.namespaces.getOrDefault(cacheName, "");
+    }
+
+    /** Moves the cache to a new generation, leaving its old entries unaddressed. */
+    public CompletableFuture<Long> next(String cacheName) {
+        return this.sender.send(this.node, () -> this.node.control().incr(key(cacheName))).thenApply(next -> {
+            this.update(cacheName, next);
+            return next;
+        });
+    }
+
+    /** Moves every cache to a new generation. */
+    public CompletableFuture<Long> nextGlobal() {
+        return this.sender.send(this.node, () -> this.node.control().incr(key(this.prefix))).thenApply(next -> {
+            this.updateGlobal(next);
+            return next;
+        });
+    }
+
+    // A namespace not read since the mirror was last dropped is left to the next access, which reads both counters.
+    public synchronized void update(String cacheName, long generation) {
+        long current = this.generations.merge(cacheName, generation, Math::max);
+        this.namespaces.computeIfPresent(
+                cacheName, (name, namespace) -> name + ":" + this.global.get() + "." + current);
+    }
+
+    public synchronized void updateGlobal(long generation) {
+        long previous = this.global.getAndAccumulate(generation, Math::max);
+        if (previous < generation) this.namespaces.clear();
+    }
+
+    public synchronized void forget() {
+        this.readAt = System.currentTimeMillis();
+        this.generations.clear();
+        this.namespaces.clear();
+        this.global.set(0L);
+    }
+
+    private synchronized String read(String cacheName, long global, long generation) {
+        this.updateGlobal(global);
+        long current = this.generations.merge(cacheName, generation, Math::max);
+        String namespace = cacheName + ":" + this.global.get() + "." + current;
+        this.namespaces.put(cacheName, namespace);
+        return namespace;
+    }
+
+    private synchronized void expire() {
+        if (System.currentTimeMillis() - this.readAt >= this.refresh) this.forget();
+    }
+
+    private static long toLong(KeyValue<String, byte[]> value) {
+        if (value == null || !value.hasValue()) return 0L;
+
+        return Long.parseLong(new String(value.getValue(), StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,26 @@
+package studio.ikara.commons.service.cache;
+
+import java.util.List;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+import studio.ikara.commons.service.CacheService;
+
+/**
+ * Reports the hottest cache keys on this node, at {@code /actuator/cachehotkeys}.
+ */
+@Component
+@Endpoint(id = "cachehotkeys")
+public class CacheHotKeysEndpoint {
+
+    private final CacheService cacheService;
+
+    public CacheHotKeysEndpoint(CacheService cacheService) {
+        this.cacheService = cacheService;
+    }
+
+    @ReadOperation
+    public List<HotKeyTracker.HotKey> hotKeys() {
+        return this.cacheService.getHotKeys().join();
+    }
+}
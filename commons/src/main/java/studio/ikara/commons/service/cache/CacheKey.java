@@ -0,0 +1,97 @@
+package studio.ikara.commons.service.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Key of a cache entry, made of one or more parts. The hash is computed once, so a local lookup hashes no strings, and
+ * the text form used in Redis and in eviction messages is built on first use and kept.
+ *
+ * <p>A single part is its own text form. Several parts are written as {@value #MARKER} followed by each part as
+ * {@code length:text}, or {@code ~} for null, so {@code (1, 23)} and {@code (12, 3)} stay distinct and
+ * {@link #parse(String)} gives back an equal key.
+ */
+public final class CacheKey {
+
+    public static final char MARKER = '\u001F';
+
+    private static final char NULL_PART = '~';
+
+    private final String[] parts;
+
+    private final int hash;
+
+    private String text;
+
+    private CacheKey(String[] parts) {
+        this.parts = parts;
+        this.hash = parts.length == 1 && parts[0] != null ? parts[0].hashCode() : Arrays.hashCode(parts);
+    }
+
+    public static CacheKey of(Object... args) {
+        String[] parts = new String[args.length];
+        for (int i = 0; i < args.length; i++) parts[i] = args[i] == null ? null : args[i].toString();
+
+        return new CacheKey(parts);
+    }
+
+    public static CacheKey parse(String text) {
+        if (text.isEmpty() || text.charAt(0) != MARKER) {
+            CacheKey key = new CacheKey(new String[] {text});
+            key.text = text;
+            return key;
+        }
+
+        List<String> parts = new ArrayList<>();
+        int at = 1;
+        while (at < text.length()) {
+            if (text.charAt(at) == NULL_PART) {
+                parts.add(null);
+                at++;
+                continue;
+            }
+
+            int colon = text.indexOf(':', at);
+            int length = Integer.parseInt(text, at, colon, 10);
+            parts.add(text.substring(colon + 1, colon + 1 + length));
+            at = colon + 1 + length;
+        }
+
+        CacheKey key = new CacheKey(parts.toArray(String[]::new));
+        key.text = text;
+        return key;
+    }
+
+    @Override
+    public String toString() {
+        if (this.text != null) return this.text;
+
+        String single = this.parts.length == 1 ? this.parts[0] : null;
+        if (single != null && (single.isEmpty() || single.charAt(0) != MARKER)) {
+            this.text = single;
+            return single;
+        }
+
+        StringBuilder sb = new StringBuilder().append(MARKER);
+        for (String part : this.parts) {
+            if (part == null) sb.append(NULL_PART);
+            else sb.append(part.length()).append(':').append(part);
+        }
+
+        this.text = sb.toString();
+        return this.text;
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+
+        return obj instanceof CacheKey other && this.hash == other.hash && Arrays.equals(this.parts, other.parts);
+    }
+}
@@ -0,0 +1,163 @@
+package studio.ikara.commons.service.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Micrometer meters for {@code CacheService}, per cache name and tier, published under {@code ikara.cache.*} and
+ * visible at {@code /actuator/metrics}. Counts are kept in {@link LongAdder}s read by function counters, and each
+ * cache's meters are registered once on first use, so recording a hit is a map lookup and an add, with no allocation.
+ * Without a {@link MeterRegistry} the counts are still kept but nothing is published and loads are not timed.
+ */
+public class CacheMetrics {
+
+    private static final String CACHE = "cache";
+
+    // Kept apart from Spring Boot's own cache.* meters for the same cache names.
+    private static final String PREFIX = "ikara.cache.";
+
+    private final MeterRegistry registry;
+
+    private final ConcurrentHashMap<String, Meters> caches = new ConcurrentHashMap<>();
+
+    private final LongAdder localCoalescedLoads = new LongAdder();
+
+    private final LongAdder remoteCoalescedLoads = new LongAdder();
+
+    private final LongAdder messagesSent = new LongAdder();
+
+    private final LongAdder entriesSent = new LongAdder();
+
+    private final LongAdder messagesReceived = new LongAdder();
+
+    private final LongAdder entriesReceived = new LongAdder();
+
+    public CacheMetrics(MeterRegistry registry) {
+        this.registry = registry;
+
+        if (registry == null) return;
+
+        FunctionCounter.builder(PREFIX + "loads.coalesced", this.localCoalescedLoads, LongAdder::sum)
+                .tag("scope", "local")
+                .description("Cache misses that joined a load already in flight on this node")
+                .register(registry);
+        FunctionCounter.builder(PREFIX + "loads.coalesced", this.remoteCoalescedLoads, LongAdder::sum)
+                .tag("scope", "remote")
+                .description("Cache misses served by a load another node held the lease for")
+                .register(registry);
+
+        this.counter(PREFIX + "eviction.messages", this.messagesSent, "direction", "sent");
+        this.counter(PREFIX + "eviction.messages", this.messagesReceived, "direction", "received");
+        this.counter(PREFIX + "eviction.entries", this.entriesSent, "direction", "sent");
+        this.counter(PREFIX + "eviction.entries", this.entriesReceived, "direction", "received");
+    }
+
+    public Meters forCache(String cacheName) {
+        Meters meters = this.caches.get(cacheName);
+        if (meters != null) return meters;
+
+        return this.caches.computeIfAbsent(cacheName, Meters::new);
+    }
+
+    public void localCoalescedLoad() {
+        this.localCoalescedLoads.increment();
+    }
+
+    public void remoteCoalescedLoad() {
+        this.remoteCoalescedLoads.increment();
+    }
+
+    public void evictionSent(int entries) {
+        this.messagesSent.increment();
+        this.entriesSent.add(entries);
+    }
+
+    public void evictionReceived(int entries) {
+        this.messagesReceived.increment();
+        this.entriesReceived.add(entries);
+    }
+
+    private void counter(String name, LongAdder count, String... tags) {
+        FunctionCounter.builder(name, count, LongAdder::sum).tags(tags).register(this.registry);
+    }
+
+    public final class Meters {
+
+        private final LongAdder localHits = new LongAdder();
+
+        private final LongAdder offHeapHits = new LongAdder();
+
+        private final LongAdder remoteHits = new LongAdder();
+
+        private final LongAdder misses = new LongAdder();
+
+        private final LongAdder redisErrors = new LongAdder();
+
+        private final Timer loads;
+
+        private final Timer failedLoads;
+
+        private Meters(String cacheName) {
+            if (registry == null) {
+                this.loads = null;
+                this.failedLoads = null;
+                return;
+            }
+
+            counter(PREFIX + "gets", this.localHits, CACHE, cacheName, "result", "hit", "tier", "local");
+            counter(PREFIX + "gets", this.offHeapHits, CACHE, cacheName, "result", "hit", "tier", "offheap");
+            counter(PREFIX + "gets", this.remoteHits, CACHE, cacheName, "result", "hit", "tier", "remote");
+            counter(PREFIX + "gets", this.misses, CACHE, cacheName, "result", "miss", "tier", "none");
+            counter(PREFIX + "redis.errors", this.redisErrors, CACHE, cacheName);
+
+            this.loads = Timer.builder(PREFIX + "loads")
+                    .tags(CACHE, cacheName, "result", "success")
+                    .description("Time spent loading values the cache missed")
+                    .register(registry);
+            this.failedLoads = Timer.builder(PREFIX + "loads")
+                    .tags(CACHE, cacheName, "result", "failure")
+                    .register(registry);
+        }
+
+        public void localHit() {
+            this.localHits.increment();
+        }
+
+        public void localHits(int count) {
+            this.localHits.add(count);
+        }
+
+        public void offHeapHit() {
+            this.offHeapHits.increment();
+        }
+
+        public void remoteHit() {
+            this.remoteHits.increment();
+        }
+
+        public void remoteHits(int count) {
+            this.remoteHits.add(count);
+        }
+
+        public void miss() {
+            this.misses.increment();
+        }
+
+        public void misses(int count) {
+            this.misses.add(count);
+        }
+
+        public void redisError() {
+            this.redisErrors.increment();
+        }
+
+        public void load(long nanos, boolean succeeded) {
+            Timer timer = succeeded ? this.loads : this.failedLoads;
+            if (timer != null) timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
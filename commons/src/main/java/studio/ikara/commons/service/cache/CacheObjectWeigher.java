@@ -0,0 +1,33 @@
+package studio.ikara.commons.service.cache;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import io.lettuce.core.codec.RedisCodec;
+import studio.ikara.commons.service.CacheObject;
+
+/**
+ * Weighs an L1 entry by the number of bytes the configured cache codec produces for it, so a
+ * {@code maximumWeight} on a cache spec bounds the heap that cache can hold in (approximate) bytes. An entry the
+ * write path already encoded is weighed by that encoding's length instead of being encoded again.
+ */
+public class CacheObjectWeigher implements Weigher<Object, Object> {
+
+    private final RedisCodec<String, Object> codec;
+
+    public CacheObjectWeigher(RedisCodec<String, Object> codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public int weigh(Object key, Object value) {
+        int weight = key.toString().length();
+
+        try {
+            if (!(value instanceof CacheObject co)) weight += this.codec.encodeValue(value).remaining();
+            else weight += co.encodedSize() > 0 ? co.encodedSize() : co.encode(this.codec).length;
+        } catch (RuntimeException ex) {
+            // A value the codec cannot encode still occupies heap, count it as a single unit rather than fail the put.
+        }
+
+        return Math.max(weight, 1);
+    }
+}
@@ -0,0 +1,12 @@
+package studio.ikara.commons.service.cache;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Loads hot data into the cache once the application is ready, so the first requests after a deploy don't all miss.
+ * Every bean implementing it is run by {@code CacheService} when {@code cache.preload} is set.
+ */
+public interface CachePreloader {
+
+    CompletableFuture<?> preload();
+}
@@ -0,0 +1,87 @@
+package studio.ikara.commons.service.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * File a node writes its local caches to on shutdown and reads them back from on startup. Each cache is a section
+ * with the generation it was at and its entries, as key text and value bytes from the cache codec. The file is written
+ * to a temporary sibling and moved into place, so a crash while writing never leaves a partial snapshot behind.
+ */
+public record CacheSnapshot(long takenAt, List<Section> sections) {
+
+    private static final int FORMAT_VERSION = 1;
+
+    public record Section(String cacheName, String generation, Map<String, byte[]> entries) {}
+
+    public void write(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(this.takenAt);
+            out.writeInt(this.sections.size());
+
+            for (Section section : this.sections) {
+                writeBytes(out, section.cacheName().getBytes(StandardCharsets.UTF_8));
+                writeBytes(out, section.generation().getBytes(StandardCharsets.UTF_8));
+                out.writeInt(section.entries().size());
+
+                for (Map.Entry<String, byte[]> entry : section.entries().entrySet()) {
+                    writeBytes(out, entry.getKey().getBytes(StandardCharsets.UTF_8));
+                    writeBytes(out, entry.getValue());
+                }
+            }
+        }
+
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static CacheSnapshot read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) throw new IOException("Unknown cache snapshot format version : " + version);
+
+            long takenAt = in.readLong();
+            int sectionCount = in.readInt();
+
+            List<Section> sections = new ArrayList<>(sectionCount);
+            for (int i = 0; i < sectionCount; i++) {
+                String cacheName = readString(in);
+                String generation = readString(in);
+                int entryCount = in.readInt();
+
+                Map<String, byte[]> entries = LinkedHashMap.newLinkedHashMap(entryCount);
+                for (int j = 0; j < entryCount; j++) entries.put(readString(in), readBytes(in));
+
+                sections.add(new Section(cacheName, generation, entries));
+            }
+
+            return new CacheSnapshot(takenAt, sections);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        return in.readNBytes(in.readInt());
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+}
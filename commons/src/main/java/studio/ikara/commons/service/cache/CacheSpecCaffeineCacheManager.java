@@ -0,0 +1,139 @@
+package studio.ikara.commons.service.cache;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import com.github.benmanes.caffeine.cache.Weigher;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+/**
+ * Caffeine cache manager that builds each cache from its own spec, configured as
+ * {@code cache.specs.<name>=maximumWeight=...,expireAfterWrite=...,refreshAfterWrite=...} in the {@link CaffeineSpec}
+ * syntax. The name is the one given to {@code CacheService}, without the redis cache prefix. Caches without a spec use
+ * the default builder, except negative tiers, named with {@link #NEGATIVE_SUFFIX}, which fall back to the negative
+ * spec so that remembered misses stay small and short-lived.
+ */
+public class CacheSpecCaffeineCacheManager extends CaffeineCacheManager {
+
+    public static final String NEGATIVE_SUFFIX = "-negative";
+
+    private final String prefix;
+
+    private final Map<String, String> specs;
+
+    private String negativeSpec;
+
+    private final Weigher<Object, Object> weigher;
+
+    private BiFunction<String, Object, CompletableFuture<Object>> reloader;
+
+    private long frontSize;
+
+    public CacheSpecCaffeineCacheManager(String prefix, Map<String, String> specs, Weigher<Object, Object> weigher) {
+        this.prefix = prefix + "-";
+        this.specs = new HashMap<>(specs);
+        this.weigher = weigher;
+
+        // Fail on startup rather than on the first request that touches a misconfigured cache.
+        this.specs.values().forEach(CaffeineSpec::parse);
+    }
+
+    /**
+     * Sets the function caches with a {@code refreshAfterWrite} use to reload an entry, given the cache name and key.
+     * The function completes with null when the entry is gone, which removes it from the cache.
+     */
+    public void setReloader(BiFunction<String, Object, CompletableFuture<Object>> reloader) {
+        this.reloader = reloader;
+    }
+
+    /**
+     * Bounds every cache whose spec sets no maximum to this many entries, so that with the off-heap tier on Caffeine is
+     * only a small front for it. Zero or less leaves them unbounded.
+     */
+    public void setFrontSize(long frontSize) {
+        this.frontSize = frontSize;
+    }
+
+    /**
+     * Sets the spec of negative tiers without one of their own, such as {@code maximumSize=10000,expireAfterWrite=30s}.
+     */
+    public void setNegativeSpecification(String negativeSpec) {
+        if (negativeSpec != null && !negativeSpec.isBlank()) CaffeineSpec.parse(negativeSpec);
+        this.negativeSpec = negativeSpec == null || negativeSpec.isBlank() ? null : negativeSpec;
+    }
+
+    public String getSpecification(String cacheName) {
+        String name = cacheName.startsWith(this.prefix) ? cacheName.substring(this.prefix.length()) : cacheName;
+
+        String spec = this.specs.get(name);
+        if (spec != null || !name.endsWith(NEGATIVE_SUFFIX)) return spec;
+
+        return this.negativeSpec;
+    }
+
+    /**
+     * The {@code expireAfterWrite} of the cache's spec, or null when it has none. Used to give the shared tier the same
+     * lifetime as the local one.
+     */
+    public Duration getExpireAfterWrite(String cacheName) {
+        String spec = this.getSpecification(cacheName);
+        if (spec == null) return null;
+
+        for (String option : spec.split(",")) {
+            int equals = option.indexOf('=');
+            if (equals == -1 || !option.substring(0, equals).trim().equals("expireAfterWrite")) continue;
+
+            return parseDuration(option.substring(equals + 1).trim());
+        }
+
+        return null;
+    }
+
+    private static Duration parseDuration(String value) {
+        if (value.startsWith("P") || value.startsWith("p")) return Duration.parse(value);
+
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+
+        return switch (Character.toLowerCase(value.charAt(value.length() - 1))) {
+            case 'd' -> Duration.ofDays(amount);
+            case 'h' -> Duration.ofHours(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 's' -> Duration.ofSeconds(amount);
+            default -> throw new IllegalArgumentException("Unknown duration in cache spec : " + value);
+        };
+    }
+
+    @Override
+    protected com.github.benmanes.caffeine.cache.Cache<Object, Object> createNativeCaffeineCache(String name) {
+        String spec = this.getSpecification(name);
+        if (spec == null) return super.createNativeCaffeineCache(name);
+
+        Caffeine<Object, Object> builder = Caffeine.from(spec);
+
+        if (spec.contains("maximumWeight")) builder.weigher(this.weigher);
+        else if (this.frontSize > 0 && !spec.contains("maximumSize")) builder.maximumSize(this.frontSize);
+
+        if (!spec.contains("refreshAfterWrite")) return builder.build();
+
+        return builder.build(new CacheLoader<Object, Object>() {
+
+            @Override
+            public Object load(Object key) {
+                return null;
+            }
+
+            @Override
+            public CompletableFuture<Object> asyncReload(Object key, Object oldValue, Executor executor) {
+                if (reloader == null) return CompletableFuture.completedFuture(oldValue);
+
+                return reloader.apply(name, key);
+            }
+        });
+    }
+}
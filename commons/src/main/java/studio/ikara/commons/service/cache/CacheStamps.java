@@ -0,0 +1,79 @@
+package studio.ikara.commons.service.cache;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Invalidation stamps for local cache entries. A load, or a read from the shared tier, takes the stamp of its key
+ * before it starts and caches what it got only if the stamp is unchanged when it ends, so an eviction that arrived in
+ * between is not undone by the older value. Keys share a fixed set of striped counters: memory does not grow with the
+ * number of keys, and two keys on one stripe only cost a skipped write. Clearing a cache bumps a counter of its own,
+ * which is part of the stamp of each of its keys, so the other caches keep their loads. Tags, which a load only learns
+ * when it ends, are marked on eviction with a clock the load reads when it starts.
+ */
+public class CacheStamps {
+
+    private static final int STRIPES = 4096;
+
+    private final AtomicLongArray stamps = new AtomicLongArray(STRIPES);
+
+    private final ConcurrentHashMap<String, AtomicLong> caches = new ConcurrentHashMap<>();
+
+    private final AtomicLong tagClock = new AtomicLong();
+
+    private final AtomicLongArray tags = new AtomicLongArray(STRIPES);
+
+    public long stamp(String cacheName, CacheKey key) {
+        return (this.cacheStamp(cacheName) << 32) + this.stamps.get(index(cacheName, key));
+    }
+
+    public boolean isCurrent(String cacheName, CacheKey key, long stamp) {
+        return this.stamp(cacheName, key) == stamp;
+    }
+
+    public void invalidate(String cacheName, CacheKey key) {
+        this.stamps.incrementAndGet(index(cacheName, key));
+    }
+
+    public void invalidateAll(String cacheName) {
+        this.caches.computeIfAbsent(cacheName, name -> new AtomicLong()).incrementAndGet();
+    }
+
+    public void invalidateAll() {
+        for (int i = 0; i < STRIPES; i++) this.stamps.incrementAndGet(i);
+    }
+
+    public long tagClock() {
+        return this.tagClock.get();
+    }
+
+    public void invalidateTag(String tag) {
+        long evicted = this.tagClock.incrementAndGet();
+        this.tags.accumulateAndGet(index(tag), evicted, Math::max);
+    }
+
+    /** Whether none of the tags was evicted after the clock read the given time. */
+    public boolean tagsCurrent(Collection<String> tags, long since) {
+        for (String tag : tags) if (this.tags.get(index(tag)) > since) return false;
+        return true;
+    }
+
+    private long cacheStamp(String cacheName) {
+        AtomicLong stamp = this.caches.get(cacheName);
+        return stamp == null ? 0L : stamp.get();
+    }
+
+    private static int index(String cacheName, CacheKey key) {
+        return spread(cacheName.hashCode() * 31 + key.hashCode());
+    }
+
+    private static int index(String tag) {
+        return spread(tag.hashCode());
+    }
+
+    private static int spread(int hash) {
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,127 @@
+package studio.ikara.commons.service.cache;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import studio.ikara.commons.thread.VirtualThreadExecutor;
+
+/**
+ * Collects eviction entries, {@code cacheName:key}, for a short window or until a batch is full, and hands each batch
+ * to the publisher once, so a bulk update sends one pub/sub message instead of one per key. A batch travels as a
+ * single message of length-prefixed entries, {@code length:entry}, so keys may contain any character, and
+ * {@link #entries(String)} reads it back, deduplicated, on the receiving side.
+ */
+public class EvictionBatcher {
+
+    private final long window;
+
+    private final int maxSize;
+
+    private final Function<Set<String>, CompletableFuture<Boolean>> publisher;
+
+    private Set<String> batch = new LinkedHashSet<>();
+
+    private CompletableFuture<Boolean> published = new CompletableFuture<>();
+
+    public EvictionBatcher(long window, int maxSize, Function<Set<String>, CompletableFuture<Boolean>> publisher) {
+        this.window = window;
+        this.maxSize = Math.max(1, maxSize);
+        this.publisher = publisher;
+    }
+
+    /**
+     * Adds an entry to the open batch. The future completes with the outcome of publishing the batch it went out in.
+     */
+    public CompletableFuture<Boolean> add(String entry) {
+        Set<String> full = null;
+        CompletableFuture<Boolean> fullPublished = null;
+        CompletableFuture<Boolean> result;
+
+        synchronized (this) {
+            result = this.published;
+            boolean opened = this.batch.isEmpty();
+            this.batch.add(entry);
+
+            if (this.window <= 0 || this.batch.size() >= this.maxSize) {
+                full = this.batch;
+                fullPublished = this.published;
+                this.reset();
+            } else if (opened) {
+                VirtualThreadExecutor.delay(this.window).thenRun(this::flush);
+            }
+        }
+
+        if (full != null) this.publish(full, fullPublished);
+
+        return result.copy();
+    }
+
+    /**
+     * Publishes the open batch now, if there is one.
+     */
+    public void flush() {
+        Set<String> entries;
+        CompletableFuture<Boolean> result;
+
+        synchronized (this) {
+            if (this.batch.isEmpty()) return;
+
+            entries = this.batch;
+            result = this.published;
+            this.reset();
+        }
+
+        this.publish(entries, result);
+    }
+
+    private void reset() {
+        this.batch = new LinkedHashSet<>();
+        this.published = new CompletableFuture<>();
+    }
+
+    private void publish(Set<String> entries, CompletableFuture<Boolean> result) {
+        try {
+            this.publisher
+                    .apply(entries)
+                    .whenComplete((done, ex) -> result.complete(ex == null && Boolean.TRUE.equals(done)));
+        } catch (RuntimeException ex) {
+            result.complete(false);
+        }
+    }
+
+    public static String message(Set<String> entries) {
+        StringBuilder sb = new StringBuilder();
+        for (String entry : entries)
+            sb.append(entry.length()).append(':').append(entry);
+        return sb.toString();
+    }
+
+    /**
+     * Reads the entries of a message built by {@link #message(Set)}, stopping at the first malformed one.
+     */
+    public static Set<String> entries(String message) {
+        Set<String> entries = new LinkedHashSet<>();
+
+        int start = 0;
+        while (start < message.length()) {
+            int colon = message.indexOf(':', start);
+            if (colon <= start) break;
+
+            int length;
+            try {
+                length = Integer.parseInt(message, start, colon, 10);
+            } catch (NumberFormatException ex) {
+                break;
+            }
+
+            int end = colon + 1 + length;
+            if (length < 0 || end > message.length()) break;
+
+            entries.add(message.substring(colon + 1, end));
+            start = end;
+        }
+
+        return entries;
+    }
+}
@@ -0,0 +1,77 @@
+package studio.ikara.commons.service.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Consistent-hash ring placing keys on nodes. Each node is hashed onto the ring at {@code virtualNodes} points per unit
+ * of weight, and a key belongs to the first point at or after its own hash, so a node with twice the weight takes about
+ * twice the keys. Adding a node only moves the keys that now fall on its points, about 1/N of them, and removing one
+ * only moves its own. Placement depends on nothing but the node names, weights and the virtual node count, so every
+ * instance configured alike agrees on it.
+ */
+public class HashRing<T> {
+
+    private final List<T> nodes;
+
+    private final long[] points;
+
+    private final int[] owners;
+
+    public HashRing(List<T> nodes, Function<T, String> name, ToIntFunction<T> weight, int virtualNodes) {
+        if (nodes.isEmpty()) throw new IllegalArgumentException("A hash ring needs at least one node");
+
+        this.nodes = List.copyOf(nodes);
+
+        List<long[]> ring = new ArrayList<>();
+        for (int i = 0; i < this.nodes.size(); i++) {
+            T node = this.nodes.get(i);
+            int count = Math.max(1, virtualNodes) * Math.max(1, weight.applyAsInt(node));
+            for (int v = 0; v < count; v++) ring.add(new long[] {hash(name.apply(node) + "#" + v), i});
+        }
+
+        // Ties are broken by node order, which is as stable as the configuration.
+        ring.sort(Comparator.<long[]>comparingLong(point -> point[0]).thenComparingLong(point -> point[1]));
+
+        this.points = new long[ring.size()];
+        this.owners = new int[ring.size()];
+        for (int i = 0; i < ring.size(); i++) {
+            this.points[i] = ring.get(i)[0];
+            this.owners[i] = (int) ring.get(i)[1];
+        }
+    }
+
+    public T node(String key) {
+        if (this.nodes.size() == 1) return this.nodes.getFirst();
+
+        int at = Arrays.binarySearch(this.points, hash(key));
+        if (at < 0) at = -at - 1;
+        if (at == this.points.length) at = 0;
+
+        return this.nodes.get(this.owners[at]);
+    }
+
+    /**
+     * All nodes, in the order they were configured.
+     */
+    public List<T> nodes() {
+        return this.nodes;
+    }
+
+    // FNV-1a over the characters, then the MurmurHash3 finalizer to spread nearby strings around the ring.
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) hash = (hash ^ key.charAt(i)) * 0x100000001b3L;
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,158 @@
+package studio.ikara.commons.service.cache;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Finds the most accessed cache keys in a fixed amount of memory. Every access is added to a count-min sketch, a few
+ * rows of counters each indexed by a different hash of the key, and the smallest of the key's counters estimates how
+ * often it was seen: never less than the truth, more only when keys collide in every row. Keys whose estimate reaches
+ * the threshold compete for a top-K table. Once the sketch has taken ten accesses per counter every count is halved,
+ * so the table follows the keys that are hot now rather than since startup. With a sample rate of N only one access
+ * in N, chosen at random, is counted, and estimates are scaled back up by N.
+ */
+public class HotKeyTracker {
+
+    private static final int DEPTH = 4;
+
+    private static final long[] SEEDS = {
+        0x9e3779b97f4a7c15L, 0xc2b2ae3d27d4eb4fL, 0x165667b19e3779f9L, 0x27d4eb2f165667c5L
+    };
+
+    private final int width;
+
+    private final AtomicIntegerArray counters;
+
+    private final int capacity;
+
+    private final int threshold;
+
+    private final int sampleRate;
+
+    private final int sampleSize;
+
+    private final LongAdder additions = new LongAdder();
+
+    // Hot keys by cache name, so checking a key needs no key object of its own.
+    private final ConcurrentHashMap<String, ConcurrentHashMap<CacheKey, Integer>> top = new ConcurrentHashMap<>();
+
+    private volatile int size;
+
+    private volatile int floor;
+
+    public record HotKey(String cacheName, String key, int estimate) {}
+
+    private record Entry(String cacheName, CacheKey key, int estimate) {}
+
+    /**
+     * @param width counters per row, rounded up to a power of two
+     * @param capacity how many hot keys are kept
+     * @param threshold estimated accesses in a sampling period before a key can be hot
+     * @param sampleRate one in how many accesses is counted
+     */
+    public HotKeyTracker(int width, int capacity, int threshold, int sampleRate) {
+        this.width = Integer.highestOneBit(Math.max(63, width - 1) << 1);
+        this.counters = new AtomicIntegerArray(DEPTH * this.width);
+        this.capacity = capacity;
+        this.threshold = Math.max(1, threshold);
+        this.sampleRate = Math.max(1, sampleRate);
+        this.sampleSize = this.width * 10;
+    }
+
+    /**
+     * Counts one access to the key and tells whether it is now one of the hot keys. An access left out by sampling is
+     * not counted and reports false.
+     */
+    public boolean record(String cacheName, CacheKey key) {
+        if (this.sampleRate > 1 && ThreadLocalRandom.current().nextInt(this.sampleRate) != 0) return false;
+
+        int hash = cacheName.hashCode() * 31 + key.hashCode();
+
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++)
+            estimate = Math.min(estimate, this.counters.incrementAndGet(this.index(hash, row)));
+        estimate *= this.sampleRate;
+
+        // The period is checked on about one access in 16, summing the adder costs more than adding to it.
+        this.additions.increment();
+        if (ThreadLocalRandom.current().nextInt(16) == 0 && this.additions.sum() >= this.sampleSize) this.age();
+
+        if (estimate < this.threshold) return false;
+
+        ConcurrentHashMap<CacheKey, Integer> keys = this.top.get(cacheName);
+        if (keys != null && keys.replace(key, estimate) != null) return true;
+
+        return (this.size < this.capacity || estimate > this.floor) && this.admit(cacheName, key, estimate);
+    }
+
+    public boolean isHot(String cacheName, CacheKey key) {
+        ConcurrentHashMap<CacheKey, Integer> keys = this.top.get(cacheName);
+        return keys != null && keys.containsKey(key);
+    }
+
+    /**
+     * The hot keys, hottest first, with the estimated accesses in the current sampling period.
+     */
+    public List<HotKey> hotKeys() {
+        return this.entries()
+                .map(e -> new HotKey(e.cacheName(), e.key().toString(), e.estimate()))
+                .sorted(Comparator.comparingInt(HotKey::estimate).reversed())
+                .toList();
+    }
+
+    private synchronized boolean admit(String cacheName, CacheKey key, int estimate) {
+        if (this.size >= this.capacity) {
+            Entry coldest = this.coldest();
+            if (coldest.estimate() >= estimate) {
+                this.floor = coldest.estimate();
+                return false;
+            }
+            this.top.get(coldest.cacheName()).remove(coldest.key());
+            this.size--;
+        }
+
+        if (this.top.computeIfAbsent(cacheName, name -> new ConcurrentHashMap<>()).put(key, estimate) == null)
+            this.size++;
+        this.floor = this.size < this.capacity ? 0 : this.coldest().estimate();
+        return true;
+    }
+
+    private Stream<Entry> entries() {
+        return this.top.entrySet().stream().flatMap(cache -> cache.getValue().entrySet().stream()
+                .map(e -> new Entry(cache.getKey(), e.getKey(), e.getValue())));
+    }
+
+    private Entry coldest() {
+        return this.entries().min(Comparator.comparingInt(Entry::estimate)).orElseThrow();
+    }
+
+    private synchronized void age() {
+        // Another thread may have aged the sketch while this one waited.
+        if (this.additions.sum() < this.sampleSize) return;
+        this.additions.reset();
+
+        for (int i = 0; i < this.counters.length(); i++) this.counters.set(i, this.counters.get(i) >>> 1);
+
+        // Keys that were not hot in the period just ended make room for those that are now.
+        int remaining = 0;
+        for (Map<CacheKey, Integer> keys : this.top.values()) {
+            keys.replaceAll((key, estimate) -> estimate >>> 1);
+            keys.values().removeIf(estimate -> estimate < this.threshold / 2);
+            remaining += keys.size();
+        }
+        this.size = remaining;
+        this.floor = 0;
+    }
+
+    private int index(int hash, int row) {
+        long h = (hash ^ SEEDS[row]) * 0x9e3779b97f4a7c15L;
+        h ^= h >>> 32;
+        return row * this.width + ((int) h & (this.width - 1));
+    }
+}
@@ -0,0 +1,388 @@
+package studio.ikara.commons.service.cache;
+
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+import io.lettuce.core.codec.RedisCodec;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import studio.ikara.commons.service.CacheObject;
+
+/**
+ * Off-heap tier between Caffeine and Redis. Entries are encoded with the cache codec into memory allocated once from a
+ * shared {@link Arena}, outside the Java heap, so the heap only holds a 16 byte index slot per entry however large the
+ * value, and the collector never scans or copies the values.
+ *
+ * <p>The memory is split into segments, each with its own lock, index and slabs. A slab is 1 MiB, given to one size
+ * class, powers of two from 64 bytes to 64 KiB, when that class first needs room, and carved into slots of its size.
+ * When a class has no free slot and no slab is left, CLOCK picks the victim: the hand clears the referenced bit of
+ * slots read since it last passed and takes the first slot that wasn't. Larger entries are not kept.
+ *
+ * <p>The index maps a 64 bit hash of the key to its slot, and a read compares the key stored in the slot, so a hash
+ * collision is a miss rather than a wrong value. Clearing a cache moves it to a new epoch, which is part of every key,
+ * so its old entries are unreachable at once and reclaimed by CLOCK.
+ *
+ * <p>Caffeine keeps its own copy of what it holds, so the heap only shrinks because the caches in front of this tier
+ * are bounded, by their spec or else by {@code cache.offheap.front} entries.
+ */
+public class OffHeapCache implements AutoCloseable {
+
+    private static final long SLAB_SIZE = 1L << 20;
+
+    private static final int MIN_SLOT_SHIFT = 6;
+    private static final int MAX_SLOT_SHIFT = 16;
+
+    // Slot header, followed by the key and the value.
+    private static final long USED = 0;
+    private static final long REFERENCED = 1;
+    private static final long KEY_LENGTH = 4;
+    private static final long VALUE_LENGTH = 8;
+    private static final long EXPIRES_AT = 16;
+    private static final long HASH = 24;
+    private static final long HEADER = 32;
+
+    private final Arena arena;
+
+    private final Segment[] segments;
+
+    private final RedisCodec<String, Object> codec;
+
+    private final ConcurrentHashMap<String, Integer> epochs = new ConcurrentHashMap<>();
+
+    private volatile int globalEpoch;
+
+    /**
+     * Allocates {@code capacity} bytes off the heap, rounded down to whole slabs per segment, at least one each.
+     */
+    public OffHeapCache(long capacity, int segmentCount, RedisCodec<String, Object> codec) {
+        int count = Integer.highestOneBit(Math.max(1, segmentCount));
+        long segmentSize = Math.max(SLAB_SIZE, capacity / count / SLAB_SIZE * SLAB_SIZE);
+
+        this.codec = codec;
+        this.arena = Arena.ofShared();
+        MemorySegment memory = this.arena.allocate(segmentSize * count, 1 << MIN_SLOT_SHIFT);
+
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) this.segments[i] = new Segment(memory.asSlice(i * segmentSize, segmentSize));
+    }
+
+    public CacheObject get(String cacheName, CacheKey key) {
+        byte[] keyBytes = this.keyBytes(cacheName, key);
+        long hash = hash(keyBytes);
+        Segment segment = this.segment(hash);
+
+        byte[] value = segment.get(hash, keyBytes, System.currentTimeMillis());
+        if (value == null) return null;
+
+        try {
+            return this.codec.decodeValue(ByteBuffer.wrap(value)) instanceof CacheObject co ? co : null;
+        } catch (RuntimeException ex) {
+            segment.remove(hash);
+            return null;
+        }
+    }
+
+    /**
+     * Keeps the entry if it has an expiry and fits the largest size class, replacing what the key held before.
+     */
+    public boolean put(String cacheName, CacheKey key, CacheObject co) {
+        return this.put(cacheName, key, co, null);
+    }
+
+    /**
+     * Like {@link #put(String, CacheKey, CacheObject)}, with the entry already encoded by the cache codec, or null to
+     * encode it here.
+     */
+    public boolean put(String cacheName, CacheKey key, CacheObject co, byte[] value) {
+        byte[] keyBytes = this.keyBytes(cacheName, key);
+        long hash = hash(keyBytes);
+
+        if (co.getExpiresAt() <= 0) {
+            this.segment(hash).remove(hash);
+            return false;
+        }
+
+        return this.segment(hash)
+                .put(hash, keyBytes, value == null ? co.encode(this.codec) : value, co.getExpiresAt());
+    }
+
+    public void remove(String cacheName, CacheKey key) {
+        long hash = hash(this.keyBytes(cacheName, key));
+        this.segment(hash).remove(hash);
+    }
+
+    public void clear(String cacheName) {
+        this.epochs.merge(cacheName, 1, Integer::sum);
+    }
+
+    public synchronized void clearAll() {
+        this.globalEpoch++;
+    }
+
+    @Override
+    public void close() {
+        for (Segment segment : this.segments) segment.close();
+        this.arena.close();
+    }
+
+    private Segment segment(long hash) {
+        return this.segments[(int) (hash >>> 40) & (this.segments.length - 1)];
+    }
+
+    private byte[] keyBytes(String cacheName, CacheKey key) {
+        String epoch = this.globalEpoch + "." + this.epochs.getOrDefault(cacheName, 0);
+        return (cacheName + '\0' + epoch + '\0' + key).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) hash = (hash ^ b) * 0x100000001b3L;
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+
+        // Zero marks an empty index slot.
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static final class SizeClass {
+
+        private final int slotShift;
+
+        private final int slotsPerSlab;
+
+        private int[] slabs = new int[4];
+
+        private int slabCount;
+
+        private int[] free = new int[64];
+
+        private int freeCount;
+
+        private int hand;
+
+        private SizeClass(int slotShift) {
+            this.slotShift = slotShift;
+            this.slotsPerSlab = (int) (SLAB_SIZE >>> slotShift);
+        }
+
+        private int slotCount() {
+            return this.slabCount * this.slotsPerSlab;
+        }
+
+        private long offset(int ordinal) {
+            return this.slabs[ordinal / this.slotsPerSlab] * SLAB_SIZE
+                    + ((long) (ordinal % this.slotsPerSlab) << this.slotShift);
+        }
+
+        private void addSlab(int slab) {
+            if (this.slabCount == this.slabs.length) this.slabs = Arrays.copyOf(this.slabs, this.slabCount * 2);
+
+            int first = this.slotCount();
+            this.slabs[this.slabCount++] = slab;
+
+            for (int ordinal = first + this.slotsPerSlab - 1; ordinal >= first; ordinal--) this.release(ordinal);
+        }
+
+        private void release(int ordinal) {
+            if (this.freeCount == this.free.length) this.free = Arrays.copyOf(this.free, this.freeCount * 2);
+            this.free[this.freeCount++] = ordinal;
+        }
+    }
+
+    private static final class Segment {
+
+        private final MemorySegment memory;
+
+        private final int slabTotal;
+
+        private final SizeClass[] classes = new SizeClass[MAX_SLOT_SHIFT - MIN_SLOT_SHIFT + 1];
+
+        private int nextSlab;
+
+        private long[] hashes = new long[1024];
+
+        private long[] locations = new long[1024];
+
+        private int size;
+
+        private boolean closed;
+
+        private Segment(MemorySegment memory) {
+            this.memory = memory;
+            this.slabTotal = (int) (memory.byteSize() / SLAB_SIZE);
+            for (int i = 0; i < this.classes.length; i++) this.classes[i] = new SizeClass(MIN_SLOT_SHIFT + i);
+        }
+
+        private synchronized byte[] get(long hash, byte[] key, long now) {
+            if (this.closed) return null;
+
+            int at = this.find(hash);
+            if (at == -1) return null;
+
+            long offset = this.offset(this.locations[at]);
+            if (!this.matches(offset, key)) return null;
+
+            if (this.memory.get(JAVA_LONG, offset + EXPIRES_AT) <= now) {
+                this.removeAt(at);
+                return null;
+            }
+
+            this.memory.set(JAVA_BYTE, offset + REFERENCED, (byte) 1);
+
+            byte[] value = new byte[this.memory.get(JAVA_INT, offset + VALUE_LENGTH)];
+            MemorySegment.copy(this.memory, JAVA_BYTE, offset + HEADER + key.length, value, 0, value.length);
+            return value;
+        }
+
+        private synchronized boolean put(long hash, byte[] key, byte[] value, long expiresAt) {
+            if (this.closed) return false;
+
+            int at = this.find(hash);
+            if (at != -1) this.removeAt(at);
+
+            int sizeClass = sizeClass(HEADER + key.length + value.length);
+            if (sizeClass == -1) return false;
+
+            long location = this.allocate(sizeClass);
+            if (location == -1) return false;
+
+            long offset = this.offset(location);
+            this.memory.set(JAVA_BYTE, offset + USED, (byte) 1);
+            this.memory.set(JAVA_BYTE, offset + REFERENCED, (byte) 0);
+            this.memory.set(JAVA_INT, offset + KEY_LENGTH, key.length);
+            this.memory.set(JAVA_INT, offset + VALUE_LENGTH, value.length);
+            this.memory.set(JAVA_LONG, offset + EXPIRES_AT, expiresAt);
+            this.memory.set(JAVA_LONG, offset + HASH, hash);
+            MemorySegment.copy(key, 0, this.memory, JAVA_BYTE, offset + HEADER, key.length);
+            MemorySegment.copy(value, 0, this.memory, JAVA_BYTE, offset + HEADER + key.length, value.length);
+
+            this.insert(hash, location);
+            return true;
+        }
+
+        private synchronized void remove(long hash) {
+            if (this.closed) return;
+
+            int at = this.find(hash);
+            if (at != -1) this.removeAt(at);
+        }
+
+        private synchronized void close() {
+            this.closed = true;
+        }
+
+        private static int sizeClass(long needed) {
+            int shift = Math.max(MIN_SLOT_SHIFT, 64 - Long.numberOfLeadingZeros(needed - 1));
+            return shift > MAX_SLOT_SHIFT ? -1 : shift - MIN_SLOT_SHIFT;
+        }
+
+        private long offset(long location) {
+            return this.classes[(int) (location >>> 32)].offset((int) location);
+        }
+
+        private boolean matches(long offset, byte[] key) {
+            if (this.memory.get(JAVA_INT, offset + KEY_LENGTH) != key.length) return false;
+
+            long start = offset + HEADER;
+            return MemorySegment.mismatch(
+                            this.memory, start, start + key.length, MemorySegment.ofArray(key), 0, key.length)
+                    == -1;
+        }
+
+        private long allocate(int sizeClass) {
+            SizeClass slots = this.classes[sizeClass];
+
+            if (slots.freeCount == 0 && this.nextSlab < this.slabTotal) slots.addSlab(this.nextSlab++);
+
+            if (slots.freeCount > 0) return location(sizeClass, slots.free[--slots.freeCount]);
+
+            int count = slots.slotCount();
+            for (int i = 0; i < 2 * count; i++) {
+                int ordinal = slots.hand;
+                slots.hand = (slots.hand + 1) % count;
+
+                long offset = slots.offset(ordinal);
+                if (this.memory.get(JAVA_BYTE, offset + REFERENCED) != 0) {
+                    this.memory.set(JAVA_BYTE, offset + REFERENCED, (byte) 0);
+                    continue;
+                }
+
+                long location = location(sizeClass, ordinal);
+                int at = this.find(this.memory.get(JAVA_LONG, offset + HASH));
+                if (at != -1 && this.locations[at] == location) this.deleteIndex(at);
+                return location;
+            }
+
+            return -1;
+        }
+
+        private static long location(int sizeClass, int ordinal) {
+            return ((long) sizeClass << 32) | ordinal;
+        }
+
+        private void removeAt(int at) {
+            long location = this.locations[at];
+            this.memory.set(JAVA_BYTE, this.offset(location) + USED, (byte) 0);
+            this.classes[(int) (location >>> 32)].release((int) location);
+            this.deleteIndex(at);
+        }
+
+        private int find(long hash) {
+            int mask = this.hashes.length - 1;
+            for (int i = (int) hash & mask; ; i = (i + 1) & mask) {
+                if (this.hashes[i] == 0) return -1;
+                if (this.hashes[i] == hash) return i;
+            }
+        }
+
+        private void insert(long hash, long location) {
+            if ((this.size + 1) * 5L > this.hashes.length * 3L) this.resize();
+
+            int mask = this.hashes.length - 1;
+            int i = (int) hash & mask;
+            while (this.hashes[i] != 0) i = (i + 1) & mask;
+
+            this.hashes[i] = hash;
+            this.locations[i] = location;
+            this.size++;
+        }
+
+        // Backward shift deletion, so linear probing never needs tombstones.
+        private void deleteIndex(int at) {
+            int mask = this.hashes.length - 1;
+            int hole = at;
+
+            for (int i = (hole + 1) & mask; this.hashes[i] != 0; i = (i + 1) & mask) {
+                int home = (int) this.hashes[i] & mask;
+                if (((i - home) & mask) < ((i - hole) & mask)) continue;
+
+                this.hashes[hole] = this.hashes[i];
+                this.locations[hole] = this.locations[i];
+                hole = i;
+            }
+
+            this.hashes[hole] = 0;
+            this.locations[hole] = 0;
+            this.size--;
+        }
+
+        private void resize() {
+            long[] oldHashes = this.hashes;
+            long[] oldLocations = this.locations;
+
+            this.hashes = new long[oldHashes.length * 2];
+            this.locations = new long[oldLocations.length * 2];
+            this.size = 0;
+
+            for (int i = 0; i < oldHashes.length; i++)
+                if (oldHashes[i] != 0) this.insert(oldHashes[i], oldLocations[i]);
+        }
+    }
+}
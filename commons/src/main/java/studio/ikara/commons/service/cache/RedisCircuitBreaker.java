@@ -0,0 +1,129 @@
+package studio.ikara.commons.service.cache;
+
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker for the Redis cache tier. After {@code failureThreshold} consecutive timeouts or connection errors
+ * it opens, and commands fail at once without being sent instead of each waiting out its timeout. Once
+ * {@code openMillis} have passed a single trial command is let through: its success closes the breaker and runs the
+ * recovery callback, its failure opens the breaker for another period. Error replies from a reachable Redis, and
+ * failures to decode a value, don't count. A threshold of zero or less never opens the breaker.
+ */
+public class RedisCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisCircuitBreaker.class);
+
+    private static final int CLOSED = 0;
+    private static final int OPEN = 1;
+    private static final int HALF_OPEN = 2;
+
+    public static final OpenException OPEN_EXCEPTION = new OpenException();
+
+    private final int failureThreshold;
+
+    private final long openMillis;
+
+    private final Runnable onRecovery;
+
+    private final AtomicInteger state = new AtomicInteger(CLOSED);
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private volatile long openedAt;
+
+    private volatile long retryAt;
+
+    public RedisCircuitBreaker(int failureThreshold, long openMillis, Runnable onRecovery) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.onRecovery = onRecovery;
+    }
+
+    /**
+     * Whether a command may be sent now. While open this is true only for the one trial command once the open period
+     * is over.
+     */
+    public boolean tryAcquire() {
+        int current = this.state.get();
+        if (current == CLOSED) return true;
+        if (current == HALF_OPEN) return false;
+
+        return System.currentTimeMillis() >= this.retryAt && this.state.compareAndSet(OPEN, HALF_OPEN);
+    }
+
+    public boolean isOpen() {
+        return this.state.get() != CLOSED;
+    }
+
+    /**
+     * When the breaker last opened, in epoch milliseconds.
+     */
+    public long openedAt() {
+        return this.openedAt;
+    }
+
+    public void onSuccess() {
+        if (this.state.get() == HALF_OPEN) {
+            if (!this.state.compareAndSet(HALF_OPEN, CLOSED)) return;
+
+            this.failures.set(0);
+            logger.info("Redis is reachable again, closing the cache circuit breaker");
+            this.onRecovery.run();
+            return;
+        }
+
+        if (this.failures.get() != 0) this.failures.set(0);
+    }
+
+    public void onFailure(Throwable ex) {
+        if (!trips(ex)) {
+            this.onSuccess();
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        int current = this.state.get();
+
+        if (current == HALF_OPEN) {
+            this.retryAt = now + this.openMillis;
+            this.state.compareAndSet(HALF_OPEN, OPEN);
+            return;
+        }
+
+        if (current == OPEN) return;
+
+        if (this.failureThreshold <= 0 || this.failures.incrementAndGet() < this.failureThreshold) return;
+
+        // Set before opening, so no caller sees the breaker open with the previous retry time.
+        this.retryAt = now + this.openMillis;
+        this.openedAt = now;
+        if (!this.state.compareAndSet(CLOSED, OPEN)) return;
+
+        logger.warn("Redis failed {} times in a row, opening the cache circuit breaker", this.failureThreshold, ex);
+    }
+
+    private static boolean trips(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+
+        if (cause instanceof TimeoutException) return true;
+
+        return cause instanceof RedisException && !(cause instanceof RedisCommandExecutionException);
+    }
+
+    /**
+     * The failure of a command that was not sent because the breaker is open. Shared and without a stack trace, as it
+     * is thrown on every cache call while Redis is down.
+     */
+    public static final class OpenException extends RuntimeException {
+
+        private OpenException() {
+            super("Redis cache circuit breaker is open", null, false, false);
+        }
+    }
+}
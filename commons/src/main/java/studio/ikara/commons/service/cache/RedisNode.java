@@ -0,0 +1,20 @@
+package studio.ikara.commons.service.cache;
+
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import io.lettuce.core.pubsub.api.async.RedisPubSubAsyncCommands;
+
+/**
+ * The connections the cache tier holds to one Redis server: values are read through the cache codec and written already
+ * encoded, with the bookkeeping, through the raw control codec, and one connection each publishes and receives
+ * evictions.
+ *
+ * @param name stable identity of the server, its host, port and database, which places it on the {@link HashRing}
+ */
+public record RedisNode(
+        String name,
+        int weight,
+        RedisAsyncCommands<String, Object> data,
+        RedisAsyncCommands<String, byte[]> control,
+        RedisPubSubAsyncCommands<String, String> publisher,
+        StatefulRedisPubSubConnection<String, String> subscriber) {}
@@ -0,0 +1,14 @@
+package studio.ikara.commons.service.cache;
+
+import io.lettuce.core.RedisFuture;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Sends a command to a Redis node through the node's {@link RedisCircuitBreaker}, failing at once while it is open.
+ */
+@FunctionalInterface
+public interface RedisSender {
+
+    <V> CompletableFuture<V> send(RedisNode node, Supplier<RedisFuture<V>> command);
+}
@@ -0,0 +1,106 @@
+package studio.ikara.commons.service.cache;
+
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import studio.ikara.commons.service.CacheObject;
+import studio.ikara.commons.thread.VirtualThreadExecutor;
+
+/**
+ * Runs one load per key at a time on this node, handing its outcome to every caller that asks meanwhile. With a lease
+ * TTL a load also takes a Redis lease, {@code lease:cacheName:key}, and a node that finds it taken waits
+ * {@code leaseWait} millis and looks the key up again before loading it itself.
+ */
+public class SingleFlightLoader {
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final long leaseTTL;
+
+    private final long leaseWait;
+
+    private final HashRing<RedisNode> ring;
+
+    private final RedisSender sender;
+
+    private final CacheMetrics metrics;
+
+    private final BiFunction<String, CacheKey, CompletableFuture<CacheObject>> lookup;
+
+    /**
+     * @param ring the Redis nodes leases are taken on, null to load without one
+     * @param lookup reads a key from the cache after waiting out another node's lease
+     */
+    public SingleFlightLoader(
+            long leaseTTL,
+            long leaseWait,
+            HashRing<RedisNode> ring,
+            RedisSender sender,
+            CacheMetrics metrics,
+            BiFunction<String, CacheKey, CompletableFuture<CacheObject>> lookup) {
+        this.leaseTTL = leaseTTL;
+        this.leaseWait = leaseWait;
+        this.ring = ring;
+        this.sender = sender;
+        this.metrics = metrics;
+        this.lookup = lookup;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> load(String cacheName, CacheKey key, Supplier<CompletableFuture<T>> loader) {
+        String flightKey = cacheName + ":" + key;
+
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> existing = this.inFlight.putIfAbsent(flightKey, load);
+
+        if (existing != null) {
+            this.metrics.localCoalescedLoad();
+            return (CompletableFuture<T>) existing.copy();
+        }
+
+        CompletableFuture<T> started;
+        try {
+            started = this.leasedLoad(cacheName, key, loader);
+        } catch (RuntimeException ex) {
+            started = CompletableFuture.failedFuture(ex);
+        }
+
+        started.whenComplete((value, ex) -> {
+            this.inFlight.remove(flightKey, load);
+            if (ex != null) load.completeExceptionally(ex);
+            else load.complete(value);
+        });
+
+        return (CompletableFuture<T>) load.copy();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> leasedLoad(String cacheName, CacheKey key, Supplier<CompletableFuture<T>> loader) {
+        if (this.leaseTTL <= 0 || this.ring == null) return loader.get();
+
+        String leaseKey = "lease:" + cacheName + ":" + key;
+        RedisNode node = this.ring.node(leaseKey);
+        RedisAsyncCommands<String, Object> commands = node.data();
+
+        return this.sender
+                .send(node, () -> commands.set(leaseKey, Boolean.TRUE, SetArgs.Builder.nx().px(this.leaseTTL)))
+                .exceptionally(ex -> "OK")
+                .thenCompose(acquired -> {
+                    if (acquired != null)
+                        return loader.get()
+                                .whenComplete((v, ex) -> this.sender.send(node, () -> commands.del(leaseKey)));
+
+                    return VirtualThreadExecutor.delay(this.leaseWait)
+                            .thenCompose(waited -> this.lookup.apply(cacheName, key))
+                            .thenCompose(entry -> {
+                                if (entry == null) return loader.get();
+
+                                this.metrics.remoteCoalescedLoad();
+                                return CompletableFuture.completedFuture((T) entry.getObject());
+                            });
+                });
+    }
+}
@@ -0,0 +1,198 @@
+package studio.ikara.commons.service.cache;
+
+import io.lettuce.core.codec.RedisCodec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.UnaryOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import studio.ikara.commons.service.CacheObject;
+
+/**
+ * Writes the listed caches to a {@link CacheSnapshot} on shutdown and restores them on startup. A snapshot older than
+ * {@code maxAge}, or taken at another generation of a cache, is ignored. With Redis an entry is restored only if the
+ * shared tier still holds it, with the value held there, so entries evicted while the node was down stay gone.
+ */
+public class SnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotStore.class);
+
+    private final Path file;
+
+    private final List<String> caches;
+
+    private final long maxAge;
+
+    private final int batch;
+
+    private final int concurrency;
+
+    private final CacheManager cacheManager;
+
+    private final RedisCodec<String, Object> codec;
+
+    private final CacheStamps stamps;
+
+    private final CacheGenerations generations;
+
+    private final UnaryOperator<String> cacheNames;
+
+    private final BiFunction<String, List<CacheKey>, CompletableFuture<Map<CacheKey, CacheObject>>> sharedReader;
+
+    /**
+     * @param caches the caches to snapshot, by the name the application gives them
+     * @param cacheNames the full cache name of each of those
+     * @param sharedReader reads many keys of a cache from the shared tier, null without Redis
+     */
+    public SnapshotStore(
+            Path file,
+            List<String> caches,
+            long maxAge,
+            int batch,
+            int concurrency,
+            CacheManager cacheManager,
+            RedisCodec<String, Object> codec,
+            CacheStamps stamps,
+            CacheGenerations generations,
+            UnaryOperator<String> cacheNames,
+            BiFunction<String, List<CacheKey>, CompletableFuture<Map<CacheKey, CacheObject>>> sharedReader) {
+        this.file = file;
+        this.caches = caches;
+        this.maxAge = maxAge;
+        this.batch = Math.max(1, batch);
+        this.concurrency = Math.max(1, concurrency);
+        this.cacheManager = cacheManager;
+        this.codec = codec;
+        this.stamps = stamps;
+        this.generations = generations;
+        this.cacheNames = cacheNames;
+        this.sharedReader = sharedReader;
+    }
+
+    public void save() {
+        if (this.caches.isEmpty()) return;
+
+        long now = System.currentTimeMillis();
+        List<CacheSnapshot.Section> sections = new ArrayList<>();
+
+        for (String cName : this.caches) {
+            String cacheName = this.cacheNames.apply(cName);
+            if (!(this.cacheManager.getCache(cacheName) instanceof CaffeineCache cache)) continue;
+
+            Map<String, byte[]> entries = new LinkedHashMap<>();
+            cache.getNativeCache().asMap().forEach((key, value) -> {
+                if (value instanceof CacheObject co && co.getExpiresAt() > now)
+                    entries.put(key.toString(), co.encode(this.codec));
+            });
+
+            sections.add(new CacheSnapshot.Section(cName, this.generations.current(cacheName), entries));
+        }
+
+        try {
+            new CacheSnapshot(now, sections).write(this.file);
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Unable to write the cache snapshot to {}", this.file, ex);
+        }
+    }
+
+    /** Restores the last snapshot, completing with the number of entries restored. */
+    public CompletableFuture<Integer> load() {
+        if (!Files.exists(this.file)) return CompletableFuture.completedFuture(0);
+
+        CacheSnapshot snapshot;
+        try {
+            snapshot = CacheSnapshot.read(this.file);
+            // Read once only, a later start without a clean shutdown must not pick up the same entries again.
+            Files.delete(this.file);
+        } catch (IOException ex) {
+            logger.warn("Unable to read the cache snapshot from {}", this.file, ex);
+            return CompletableFuture.completedFuture(0);
+        }
+
+        if (System.currentTimeMillis() - snapshot.takenAt() > this.maxAge) return CompletableFuture.completedFuture(0);
+
+        // One section at a time, each read in batches, so a large snapshot doesn't flood Redis on start.
+        CompletableFuture<Integer> restored = CompletableFuture.completedFuture(0);
+        for (CacheSnapshot.Section section : snapshot.sections())
+            restored = restored.thenCompose(count -> this.restore(section).thenApply(more -> count + more));
+
+        return restored;
+    }
+
+    private CompletableFuture<Integer> restore(CacheSnapshot.Section section) {
+        String cacheName = this.cacheNames.apply(section.cacheName());
+        Cache cache = this.cacheManager.getCache(cacheName);
+        if (cache == null || section.entries().isEmpty()) return CompletableFuture.completedFuture(0);
+
+        Map<CacheKey, Long> keyStamps = LinkedHashMap.newLinkedHashMap(section.entries().size());
+        for (String key : section.entries().keySet()) {
+            CacheKey cacheKey = CacheKey.parse(key);
+            keyStamps.put(cacheKey, this.stamps.stamp(cacheName, cacheKey));
+        }
+
+        if (this.sharedReader == null) {
+            long now = System.currentTimeMillis();
+            int count = 0;
+            for (Map.Entry<CacheKey, Long> entry : keyStamps.entrySet()) {
+                byte[] bytes = section.entries().get(entry.getKey().toString());
+                if (!(this.codec.decodeValue(ByteBuffer.wrap(bytes)) instanceof CacheObject co)
+                        || co.getExpiresAt() <= now
+                        || !this.stamps.isCurrent(cacheName, entry.getKey(), entry.getValue())) continue;
+
+                cache.put(entry.getKey(), co);
+                count++;
+            }
+            return CompletableFuture.completedFuture(count);
+        }
+
+        List<CacheKey> keys = List.copyOf(keyStamps.keySet());
+
+        return this.generations.namespace(cacheName).thenCompose(namespace -> {
+            if (!namespace.equals(section.generation())) return CompletableFuture.completedFuture(0);
+
+            // Each lane reads the next unclaimed batch until none are left, so at most this many reads are in flight.
+            AtomicInteger next = new AtomicInteger();
+            int lanes = Math.min(this.concurrency, (keys.size() + this.batch - 1) / this.batch);
+
+            List<CompletableFuture<Integer>> restored = new ArrayList<>(lanes);
+            for (int i = 0; i < lanes; i++) restored.add(this.restoreBatches(cache, cacheName, keys, keyStamps, next));
+
+            return CompletableFuture.allOf(restored.toArray(CompletableFuture[]::new))
+                    .thenApply(done -> restored.stream().mapToInt(CompletableFuture::join).sum());
+        });
+    }
+
+    private CompletableFuture<Integer> restoreBatches(
+            Cache cache, String cacheName, List<CacheKey> keys, Map<CacheKey, Long> keyStamps, AtomicInteger next) {
+        int from = next.getAndAdd(this.batch);
+        if (from >= keys.size()) return CompletableFuture.completedFuture(0);
+
+        return this.sharedReader
+                .apply(cacheName, keys.subList(from, Math.min(from + this.batch, keys.size())))
+                .thenApply(found -> {
+                    int count = 0;
+                    for (Map.Entry<CacheKey, CacheObject> entry : found.entrySet()) {
+                        if (!this.stamps.isCurrent(cacheName, entry.getKey(), keyStamps.get(entry.getKey())))
+                            continue;
+
+                        cache.put(entry.getKey(), entry.getValue());
+                        count++;
+                    }
+                    return count;
+                })
+                .thenCompose(count -> this.restoreBatches(cache, cacheName, keys, keyStamps, next)
+                        .thenApply(more -> count + more));
+    }
+}
@@ -0,0 +1,203 @@
+package studio.ikara.commons.service.cache;
+
+import io.lettuce.core.ExpireArgs;
+import io.lettuce.core.ScriptOutputType;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The entries, {@code cacheName:key}, that carry each tag. With Redis a tag is a set, {@code tag:prefix:tag}, on the
+ * first node, living as long as the longest-lived entry added to it; without, the index is kept in memory. Evicting a
+ * tag marks it with a clock that a tagged load reads as it starts, so a load overtaken by the eviction isn't indexed.
+ */
+public class TagIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(TagIndex.class);
+
+    // KEYS: the tag clock, the tag's eviction mark. ARGV: ttl.
+    private static final String MARK_TAG_EVICTED =
+            """
+            local evicted = redis.call('INCR', KEYS[1])
+            redis.call('SET', KEYS[2], evicted, 'PX', ARGV[1])
+            return evicted
+            """;
+
+    // KEYS: the tag sets, then their eviction marks. ARGV: entry, ttl, tag clock read before the load.
+    private static final String TAG_IF_CURRENT =
+            """
+            local tags = #KEYS / 2
+            for i = tags + 1, #KEYS do
+                if tonumber(redis.call('GET', KEYS[i]) or '0') > tonumber(ARGV[3]) then return 0 end
+            end
+            for i = 1, tags do
+                redis.call('SADD', KEYS[i], ARGV[1])
+                redis.call('PEXPIRE', KEYS[i], ARGV[2], 'NX')
+                redis.call('PEXPIRE', KEYS[i], ARGV[2], 'GT')
+            end
+            return 1
+            """;
+
+    private final String prefix;
+
+    private final long markTTL;
+
+    private final ToLongFunction<String> ttls;
+
+    private final CacheStamps stamps;
+
+    private final CacheMetrics metrics;
+
+    private final RedisNode node;
+
+    private final RedisSender sender;
+
+    private final ConcurrentHashMap<String, Set<String>> localTags = new ConcurrentHashMap<>();
+
+    /**
+     * @param markTTL how long an eviction mark is kept, at least as long as a load may take
+     * @param ttls the TTL of each cache, by cache name
+     * @param node the Redis node the index is kept on, null to keep it in memory
+     */
+    public TagIndex(
+            String prefix,
+            long markTTL,
+            ToLongFunction<String> ttls,
+            CacheStamps stamps,
+            CacheMetrics metrics,
+            RedisNode node,
+            RedisSender sender) {
+        this.prefix = prefix;
+        this.markTTL = markTTL;
+        this.ttls = ttls;
+        this.stamps = stamps;
+        this.metrics = metrics;
+        this.node = node;
+        this.sender = sender;
+    }
+
+    public void tag(String cacheName, CacheKey key, Collection<String> tags) {
+        if (tags == null || tags.isEmpty()) return;
+
+        String entry = cacheName + ":" + key;
+
+        if (this.node == null) {
+            for (String tag : tags) this.localTags.computeIfAbsent(tag, t -> ConcurrentHashMap.newKeySet()).add(entry);
+            return;
+        }
+
+        byte[] member = entry.getBytes(StandardCharsets.UTF_8);
+        long ttl = this.ttls.applyAsLong(cacheName);
+
+        for (String tag : tags) {
+            String tagKey = this.tagKey(tag);
+            CompletableFuture<Long> added = this.sender.send(this.node, () -> this.node.control().sadd(tagKey, member));
+            CompletableFuture<Boolean> created = this.sender.send(
+                    this.node, () -> this.node.control().pexpire(tagKey, ttl, ExpireArgs.Builder.nx()));
+            CompletableFuture<Boolean> extended = this.sender.send(
+                    this.node, () -> this.node.control().pexpire(tagKey, ttl, ExpireArgs.Builder.gt()));
+
+            CompletableFuture.allOf(added, created, extended).exceptionally(ex -> {
+                logger.debug("Unable to tag {} in {} with {} in redis", key, cacheName, tag, ex);
+                this.metrics.forCache(cacheName).redisError();
+                return null;
+            });
+        }
+    }
+
+    /** The clock tag evictions are marked with. When it can't be read the marks are not checked. */
+    public CompletableFuture<Long> clock() {
+        if (this.node == null) return CompletableFuture.completedFuture(this.stamps.tagClock());
+
+        return this.sender
+                .send(this.node, () -> this.node.control().get(this.clockKey()))
+                .thenApply(value -> value == null ? 0L : Long.parseLong(new String(value, StandardCharsets.US_ASCII)))
+                .exceptionally(ex -> Long.MAX_VALUE);
+    }
+
+    /**
+     * Tags a loaded entry unless one of its tags was evicted since the clock read {@code since}, and tells which. The
+     * entry is indexed before the check, so an eviction after it finds the entry.
+     */
+    public CompletableFuture<Boolean> tagIfCurrent(
+            String cacheName, CacheKey key, Collection<String> tags, long since) {
+        if (tags == null || tags.isEmpty()) return CompletableFuture.completedFuture(true);
+
+        String entry = cacheName + ":" + key;
+
+        if (this.node == null) {
+            for (String tag : tags) this.localTags.computeIfAbsent(tag, t -> ConcurrentHashMap.newKeySet()).add(entry);
+            return CompletableFuture.completedFuture(this.stamps.tagsCurrent(tags, since));
+        }
+
+        String[] keys = new String[tags.size() * 2];
+        int i = 0;
+        for (String tag : tags) {
+            keys[i] = this.tagKey(tag);
+            keys[i + tags.size()] = this.tagEvictedKey(tag);
+            i++;
+        }
+
+        return this.sender
+                .send(this.node, () -> this.node.control().<Boolean>eval(
+                        TAG_IF_CURRENT,
+                        ScriptOutputType.BOOLEAN,
+                        keys,
+                        entry.getBytes(StandardCharsets.UTF_8),
+                        Long.toString(this.ttls.applyAsLong(cacheName)).getBytes(StandardCharsets.US_ASCII),
+                        Long.toString(since).getBytes(StandardCharsets.US_ASCII)))
+                .exceptionally(ex -> {
+                    logger.debug("Unable to tag {} in {} in redis", key, cacheName, ex);
+                    this.metrics.forCache(cacheName).redisError();
+                    return true;
+                });
+    }
+
+    /** Marks the tag evicted and takes its entries out of the index, completing with them. */
+    public CompletableFuture<List<String>> evict(String tag) {
+        if (this.node == null) {
+            this.stamps.invalidateTag(tag);
+            Set<String> entries = this.localTags.remove(tag);
+            return CompletableFuture.completedFuture(entries == null ? List.of() : List.copyOf(entries));
+        }
+
+        String tagKey = this.tagKey(tag);
+        String[] marks = {this.clockKey(), this.tagEvictedKey(tag)};
+
+        // Marked first, so a load still running finds the mark. Only the members read are removed, so an entry tagged
+        // meanwhile stays indexed for the next eviction.
+        return this.sender
+                .send(this.node, () -> this.node.control().<Long>eval(
+                        MARK_TAG_EVICTED,
+                        ScriptOutputType.INTEGER,
+                        marks,
+                        Long.toString(this.markTTL).getBytes(StandardCharsets.US_ASCII)))
+                .thenCompose(marked -> this.sender.send(this.node, () -> this.node.control().smembers(tagKey)))
+                .thenCompose(members -> members.isEmpty()
+                        ? CompletableFuture.completedFuture(members)
+                        : this.sender
+                                .send(this.node, () -> this.node.control().srem(tagKey, members.toArray(byte[][]::new)))
+                                .thenApply(removed -> members))
+                .thenApply(members -> members.stream()
+                        .map(member -> new String(member, StandardCharsets.UTF_8))
+                        .toList());
+    }
+
+    private String clockKey() {
+        return CacheGenerations.key(this.prefix + "-tags");
+    }
+
+    private String tagKey(String tag) {
+        return "tag:" + this.prefix + ":" + tag;
+    }
+
+    private String tagEvictedKey(String tag) {
+        return "tagEvicted:" + this.prefix + ":" + tag;
+    }
+}
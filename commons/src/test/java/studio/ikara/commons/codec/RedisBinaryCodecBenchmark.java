@@ -0,0 +1,105 @@
+package studio.ikara.commons.codec;
+
+import io.lettuce.core.codec.RedisCodec;
+import java.io.Serial;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import studio.ikara.commons.service.CacheObject;
+
+/**
+ * Compares the binary codec with Java serialization on a cache entry holding a list of small records, reporting time
+ * per operation and, with {@code -prof gc}, allocation. Run from the test classpath through {@link #main(String[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RedisBinaryCodecBenchmark {
+
+    public static class Row implements Serializable {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private Long id;
+        private String name;
+        private Boolean active;
+        private LocalDateTime updatedAt;
+        private List<String> codes;
+    }
+
+    @Param({"binary", "object"})
+    public String codecType;
+
+    @Param({"1", "100"})
+    public int rows;
+
+    private RedisCodec<String, Object> codec;
+
+    private CacheObject entry;
+
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        this.codec = switch (this.codecType) {
+            case "binary" -> new RedisBinaryCodec(new BinaryTypeRegistry().register(100, Row.class));
+            default -> new RedisObjectCodec();
+        };
+
+        List<Row> value = new ArrayList<>(this.rows);
+        for (int i = 0; i < this.rows; i++) {
+            Row row = new Row();
+            row.id = 1_000_000L + i;
+            row.name = "row-" + i;
+            row.active = i % 2 == 0;
+            row.updatedAt = LocalDateTime.of(2025, 1, 1, 0, 0).plusMinutes(i);
+            row.codes = List.of("READ", "WRITE");
+            value.add(row);
+        }
+
+        this.entry = new CacheObject(value);
+        this.entry.setExpiresAt(System.currentTimeMillis());
+
+        ByteBuffer buffer = this.codec.encodeValue(this.entry);
+        this.encoded = new byte[buffer.remaining()];
+        buffer.get(this.encoded);
+    }
+
+    @Benchmark
+    public ByteBuffer encode() {
+        return this.codec.encodeValue(this.entry);
+    }
+
+    @Benchmark
+    public Object decode() {
+        return this.codec.decodeValue(ByteBuffer.wrap(this.encoded));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                        .include(RedisBinaryCodecBenchmark.class.getSimpleName())
+                        .build())
+                .run();
+    }
+}
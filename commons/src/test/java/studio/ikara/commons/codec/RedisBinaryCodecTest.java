@@ -0,0 +1,200 @@
+package studio.ikara.commons.codec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import studio.ikara.commons.service.CacheObject;
+
+class RedisBinaryCodecTest {
+
+    enum Status {
+        ACTIVE,
+        LOCKED
+    }
+
+    static class Account {
+
+        private Long id;
+        private String name;
+        private Status status;
+        private List<String> tags;
+        private LocalDateTime createdAt;
+        private transient String ignored;
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Account other
+                    && Objects.equals(this.id, other.id)
+                    && Objects.equals(this.name, other.name)
+                    && this.status == other.status
+                    && Objects.equals(this.tags, other.tags)
+                    && Objects.equals(this.createdAt, other.createdAt);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.id, this.name, this.status, this.tags, this.createdAt);
+        }
+    }
+
+    static class AccountWithEmail extends Account {
+
+        private String email;
+    }
+
+    private static BinaryTypeRegistry registry() {
+        return new BinaryTypeRegistry().register(100, Account.class).register(101, Status.class);
+    }
+
+    private final RedisBinaryCodec codec = new RedisBinaryCodec(registry());
+
+    private Object roundTrip(RedisBinaryCodec encoder, RedisBinaryCodec decoder, Object value) {
+        ByteBuffer encoded = encoder.encodeValue(value);
+        return decoder.decodeValue(encoded);
+    }
+
+    private Object roundTrip(Object value) {
+        return this.roundTrip(this.codec, this.codec, value);
+    }
+
+    static List<Object> scalars() {
+        return Arrays.asList(
+                true,
+                false,
+                0,
+                -1,
+                Integer.MAX_VALUE,
+                Integer.MIN_VALUE,
+                Long.MIN_VALUE,
+                Long.MAX_VALUE,
+                (short) -7,
+                (byte) 127,
+                Math.PI,
+                Double.NaN,
+                1.5f,
+                'é',
+                "",
+                "naïve ✓ text",
+                LocalDate.of(1969, 12, 31),
+                LocalDateTime.of(2024, 2, 29, 23, 59, 59, 999_999_999),
+                LocalDateTime.of(1900, 1, 1, 0, 0),
+                Instant.ofEpochSecond(-1, 1),
+                Status.LOCKED,
+                new BigDecimal("12.3400"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("scalars")
+    void roundTripsScalars(Object value) {
+        assertThat(this.roundTrip(value)).isEqualTo(value);
+    }
+
+    @Test
+    void roundTripsNull() {
+        assertThat(this.roundTrip(null)).isNull();
+        assertThat(this.codec.decodeValue(ByteBuffer.allocate(0))).isNull();
+    }
+
+    @Test
+    void roundTripsBytes() {
+        byte[] bytes = {0, 1, -1, 127, -128};
+
+        assertThat((byte[]) this.roundTrip(bytes)).containsExactly(bytes);
+    }
+
+    @Test
+    void roundTripsCollectionsWithNulls() {
+        List<Object> list = new ArrayList<>(Arrays.asList(1, null, "two", List.of(3L), null));
+
+        Set<Object> set = new LinkedHashSet<>(Arrays.asList("a", null, 2));
+
+        Map<Object, Object> map = new LinkedHashMap<>();
+        map.put("a", null);
+        map.put(null, 1);
+        map.put(2L, Map.of("nested", List.of()));
+
+        assertThat(this.roundTrip(list)).isEqualTo(list);
+        assertThat(this.roundTrip(set)).isEqualTo(set);
+        assertThat(this.roundTrip(map)).isEqualTo(map);
+        assertThat(this.roundTrip(List.of())).isEqualTo(List.of());
+    }
+
+    @Test
+    void roundTripsRegisteredTypes() {
+        Account account = new Account();
+        account.id = 42L;
+        account.name = "acme";
+        account.status = Status.ACTIVE;
+        account.tags = List.of("a", "b");
+        account.createdAt = LocalDateTime.of(2025, 6, 1, 10, 30);
+        account.ignored = "not written";
+
+        Account decoded = (Account) this.roundTrip(account);
+
+        assertThat(decoded).isEqualTo(account);
+        assertThat(decoded.ignored).isNull();
+        assertThat(this.roundTrip(new Account())).isEqualTo(new Account());
+        assertThat(this.roundTrip(List.of(account, account))).isEqualTo(List.of(account, account));
+    }
+
+    @Test
+    void roundTripsCacheObject() {
+        CacheObject co = new CacheObject(List.of(1, "x"));
+        co.setExpiresAt(1_700_000_000_000L);
+        co.setDelta(35L);
+
+        CacheObject decoded = (CacheObject) this.roundTrip(co);
+
+        assertThat(decoded.getObject()).isEqualTo(co.getObject());
+        assertThat(decoded.getExpiresAt()).isEqualTo(co.getExpiresAt());
+        assertThat(decoded.getDelta()).isEqualTo(co.getDelta());
+        assertThat(((CacheObject) this.roundTrip(new CacheObject(null))).getObject()).isNull();
+    }
+
+    @Test
+    void rejectsValuesWrittenWithDifferentFields() {
+        RedisBinaryCodec older = new RedisBinaryCodec(new BinaryTypeRegistry().register(100, AccountWithEmail.class));
+
+        AccountWithEmail account = new AccountWithEmail();
+        account.email = "a@b.c";
+
+        assertThatThrownBy(() -> this.roundTrip(older, this.codec, account))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("different fields");
+    }
+
+    @Test
+    void rejectsUnknownTypeIds() {
+        RedisBinaryCodec other = new RedisBinaryCodec(new BinaryTypeRegistry());
+
+        assertThatThrownBy(() -> this.roundTrip(this.codec, other, Status.ACTIVE))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("101");
+    }
+
+    @Test
+    void rejectsUnserializableTypes() {
+        assertThatThrownBy(() -> this.codec.encodeValue(new Object())).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsDuplicateIds() {
+        assertThatThrownBy(() -> registry().register(100, String.class)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
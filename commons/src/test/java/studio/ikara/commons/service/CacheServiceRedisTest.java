@@ -0,0 +1,242 @@
+package studio.ikara.commons.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.protocol.ProtocolVersion;
+import io.lettuce.core.resource.ClientResources;
+import io.lettuce.core.resource.Delay;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import studio.ikara.commons.codec.RedisObjectCodec;
+import studio.ikara.commons.service.cache.HashRing;
+import studio.ikara.commons.service.cache.RedisNode;
+
+/**
+ * Runs the cache against a {@link FakeRedisServer} that is stalled, so commands get no reply, or killed, so connections
+ * drop, and checks what callers of the public API see while the circuit breaker is open and once Redis is back.
+ */
+class CacheServiceRedisTest {
+
+    private static final long TIMEOUT = 100;
+
+    private static final long DEGRADED_TTL = 1_000;
+
+    private static final long OPEN_MILLIS = 300;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private FakeRedisServer redis;
+
+    private ClientResources resources;
+
+    private RedisClient client;
+
+    private RedisNode node;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        this.redis = new FakeRedisServer();
+        this.resources = ClientResources.builder()
+                .reconnectDelay(Delay.constant(Duration.ofMillis(50)))
+                .build();
+        this.client = RedisClient.create(this.resources);
+        this.client.setOptions(ClientOptions.builder().protocolVersion(ProtocolVersion.RESP2).build());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        this.redis.resume();
+        this.client.shutdown();
+        this.resources.shutdown();
+        this.redis.close();
+    }
+
+    /** A cache service on the fake server, as Spring would configure it, whose breaker opens after two failures. */
+    private CacheService cacheService(long openMillis) {
+        RedisURI uri = RedisURI.create("redis://127.0.0.1:" + this.redis.port());
+        RedisCodec<String, Object> codec = new RedisObjectCodec();
+
+        this.node = new RedisNode(
+                "127.0.0.1:" + this.redis.port() + "/0",
+                1,
+                this.client.connect(codec, uri).async(),
+                this.client.connect(RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE), uri).async(),
+                this.client.connectPubSub(uri).async(),
+                this.client.connectPubSub(uri));
+
+        CacheService service = new CacheService();
+        Map<String, Object> settings = Map.ofEntries(
+                Map.entry("cacheManager", new CaffeineCacheManager()),
+                Map.entry("redisAsyncCommand", this.node.data()),
+                Map.entry("controlAsyncCommand", this.node.control()),
+                Map.entry("redisRing", new HashRing<>(List.of(this.node), RedisNode::name, RedisNode::weight, 1)),
+                Map.entry("valueCodec", codec),
+                Map.entry("channel", "evictionChannel"),
+                Map.entry("redisPrefix", "test"),
+                Map.entry("redisTimeout", TIMEOUT),
+                Map.entry("redisLayout", "hash"),
+                Map.entry("defaultTTL", 60_000L),
+                Map.entry("generationRefresh", 60_000L),
+                Map.entry("evictionBatchSize", 500),
+                Map.entry("negativeTTL", 30_000L),
+                Map.entry("breakerFailures", 2),
+                Map.entry("breakerOpenMillis", openMillis),
+                Map.entry("degradedTTL", DEGRADED_TTL),
+                Map.entry("snapshotFile", ""),
+                Map.entry("snapshotCaches", List.of()));
+        settings.forEach((field, value) -> ReflectionTestUtils.setField(service, field, value));
+
+        service.registerEviction();
+        return service;
+    }
+
+    private CompletableFuture<String> load(CacheService service, String value, Object key) {
+        return service.cacheValueOrGet(
+                "users",
+                () -> {
+                    this.loads.incrementAndGet();
+                    return CompletableFuture.completedFuture(value);
+                },
+                key);
+    }
+
+    /** Loads a value and waits for its writes to reach the server, so none of them is caught by a stall. */
+    private void loadWritten(CacheService service, String value, Object key) throws InterruptedException {
+        assertThat(await(this.load(service, value, key))).isEqualTo(value);
+        this.redis.awaitAnswered("PEXPIRE", 2);
+    }
+
+    /** Stalls the server until two reads time out, which opens the breaker. */
+    private void trip(CacheService service) {
+        this.redis.stall();
+        for (int i = 0; i < 2; i++) assertThat(await(service.get("users", "miss-" + i))).isNull();
+    }
+
+    private void awaitReconnected() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!this.node.data().getStatefulConnection().isOpen()
+                || !this.node.control().getStatefulConnection().isOpen()) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        return future.orTimeout(5, TimeUnit.SECONDS).join();
+    }
+
+    private static long millisSince(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    @Test
+    void stalledServerTimesOutThenFailsFast() {
+        CacheService service = this.cacheService(60_000);
+        this.redis.stall();
+
+        long start = System.nanoTime();
+        assertThat(await(service.get("users", 1))).isNull();
+        assertThat(millisSince(start)).isGreaterThanOrEqualTo(TIMEOUT).isLessThan(TIMEOUT + 2_000);
+
+        assertThat(await(service.get("users", 2))).isNull();
+        int sent = this.redis.received();
+
+        start = System.nanoTime();
+        assertThat(await(service.get("users", 3))).isNull();
+        assertThat(millisSince(start)).isLessThan(TIMEOUT);
+        assertThat(this.redis.received()).isEqualTo(sent);
+    }
+
+    @Test
+    void servesAndCachesLocallyWhileTheBreakerIsOpen() throws InterruptedException {
+        CacheService service = this.cacheService(60_000);
+        this.loadWritten(service, "alice", 1);
+        this.trip(service);
+        int sent = this.redis.received();
+
+        long start = System.nanoTime();
+        assertThat(await(this.load(service, "other", 1))).isEqualTo("alice");
+        assertThat(await(this.load(service, "bob", 2))).isEqualTo("bob");
+        assertThat(await(this.load(service, "other", 2))).isEqualTo("bob");
+        assertThat(await(service.<String>get("users", 2))).isEqualTo("bob");
+        assertThat(millisSince(start)).isLessThan(TIMEOUT);
+
+        assertThat(this.loads).hasValue(2);
+        assertThat(this.redis.received()).isEqualTo(sent);
+    }
+
+    @Test
+    void entriesAreTrustedOnlyForTheDegradedTTL() throws InterruptedException {
+        CacheService service = this.cacheService(60_000);
+        this.loadWritten(service, "alice", 1);
+        this.trip(service);
+        assertThat(await(this.load(service, "bob", 2))).isEqualTo("bob");
+
+        Thread.sleep(DEGRADED_TTL / 2);
+
+        assertThat(await(this.load(service, "other", 1))).isEqualTo("alice");
+        assertThat(await(this.load(service, "other", 2))).isEqualTo("bob");
+        assertThat(this.loads).hasValue(2);
+
+        Thread.sleep(DEGRADED_TTL);
+
+        // The entry cached while degraded has expired, and the older one may have missed an eviction by now.
+        assertThat(await(this.load(service, "bob again", 2))).isEqualTo("bob again");
+        assertThat(await(this.load(service, "alice again", 1))).isEqualTo("alice again");
+        assertThat(this.loads).hasValue(4);
+    }
+
+    @Test
+    void evictingWhileTheBreakerIsOpenDropsTheLocalEntryAtOnce() throws InterruptedException {
+        CacheService service = this.cacheService(60_000);
+        this.loadWritten(service, "alice", 1);
+        this.trip(service);
+
+        long start = System.nanoTime();
+        assertThat(await(service.evict("users", 1))).isFalse();
+        assertThat(millisSince(start)).isLessThan(TIMEOUT);
+
+        assertThat(await(this.load(service, "alice again", 1))).isEqualTo("alice again");
+        assertThat(this.loads).hasValue(2);
+    }
+
+    @Test
+    void clearsTheLocalCachesWhenRedisIsBack() throws IOException, InterruptedException {
+        CacheService service = this.cacheService(OPEN_MILLIS);
+        this.loadWritten(service, "alice", 1);
+
+        this.redis.kill();
+        for (int i = 0; i < 2; i++) assertThat(await(service.get("users", "miss-" + i))).isNull();
+
+        // Cached on this node only, so other nodes' evictions of it would be missed.
+        assertThat(await(this.load(service, "bob", 2))).isEqualTo("bob");
+        assertThat(await(this.load(service, "other", 2))).isEqualTo("bob");
+
+        this.redis.restart();
+        this.awaitReconnected();
+        Thread.sleep(OPEN_MILLIS);
+
+        // The first command after the open period is the probe, and its success clears the local caches.
+        assertThat(await(service.get("users", "miss-2"))).isNull();
+
+        assertThat(await(this.load(service, "bob again", 2))).isEqualTo("bob again");
+        assertThat(await(this.load(service, "other", 1))).isEqualTo("alice");
+        assertThat(this.loads).hasValue(3);
+    }
+}
@@ -0,0 +1,305 @@
+package studio.ikara.commons.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A Redis server on a local port that speaks enough RESP2 for the cache tier: strings, hashes, counters and pub/sub,
+ * without expiry. It can be stalled, so commands are read but get no reply until it resumes, and killed, so every
+ * connection drops and new ones are refused until it restarts on the same port with its data.
+ */
+class FakeRedisServer implements AutoCloseable {
+
+    private final Map<String, byte[]> strings = new HashMap<>();
+
+    private final Map<String, Map<String, byte[]>> hashes = new HashMap<>();
+
+    private final Map<String, Set<OutputStream>> subscribers = new ConcurrentHashMap<>();
+
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, AtomicInteger> received = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicInteger> answered = new ConcurrentHashMap<>();
+
+    private final Object gate = new Object();
+
+    private boolean stalled;
+
+    private final int port;
+
+    private volatile ServerSocket server;
+
+    FakeRedisServer() throws IOException {
+        this.server = this.listen(0);
+        this.port = this.server.getLocalPort();
+    }
+
+    int port() {
+        return this.port;
+    }
+
+    /** Commands read so far, of every kind. */
+    int received() {
+        return this.received.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    /** Waits until the given number of commands of the kind have been answered. */
+    void awaitAnswered(String command, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (this.answered.getOrDefault(command, new AtomicInteger()).get() < count) {
+            if (System.currentTimeMillis() > deadline)
+                throw new IllegalStateException("No " + count + " " + command + " answered in time");
+            Thread.sleep(10);
+        }
+    }
+
+    void stall() {
+        synchronized (this.gate) {
+            this.stalled = true;
+        }
+    }
+
+    void resume() {
+        synchronized (this.gate) {
+            this.stalled = false;
+            this.gate.notifyAll();
+        }
+    }
+
+    void kill() throws IOException {
+        this.server.close();
+        for (Socket socket : this.sockets) socket.close();
+    }
+
+    void restart() throws IOException {
+        this.server = this.listen(this.port);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.resume();
+        this.kill();
+    }
+
+    private ServerSocket listen(int port) throws IOException {
+        ServerSocket socket = new ServerSocket();
+        socket.setReuseAddress(true);
+        socket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        Thread.ofPlatform().daemon().start(() -> this.accept(socket));
+        return socket;
+    }
+
+    private void accept(ServerSocket socket) {
+        while (!socket.isClosed()) {
+            try {
+                Socket client = socket.accept();
+                this.sockets.add(client);
+                Thread.ofPlatform().daemon().start(() -> this.serve(client));
+            } catch (IOException ex) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket client) {
+        OutputStream out = null;
+        try (client) {
+            InputStream in = new BufferedInputStream(client.getInputStream());
+            out = client.getOutputStream();
+
+            for (List<byte[]> command = read(in); command != null; command = read(in)) {
+                String name = text(command.getFirst()).toUpperCase(Locale.ROOT);
+                this.received.computeIfAbsent(name, n -> new AtomicInteger()).incrementAndGet();
+
+                this.awaitResumed();
+
+                byte[] reply = this.execute(name, command.subList(1, command.size()), out);
+                synchronized (out) {
+                    out.write(reply);
+                    out.flush();
+                }
+                this.answered.computeIfAbsent(name, n -> new AtomicInteger()).incrementAndGet();
+            }
+        } catch (IOException | InterruptedException ex) {
+            // The connection was closed, by the client or by kill().
+        } finally {
+            this.sockets.remove(client);
+            OutputStream closed = out;
+            if (closed != null) this.subscribers.values().forEach(outs -> outs.remove(closed));
+        }
+    }
+
+    private void awaitResumed() throws InterruptedException {
+        synchronized (this.gate) {
+            while (this.stalled) this.gate.wait();
+        }
+    }
+
+    private synchronized byte[] execute(String name, List<byte[]> args, OutputStream out) throws IOException {
+        return switch (name) {
+            case "PING" -> simple("PONG");
+            case "CLIENT", "SELECT" -> simple("OK");
+            case "GET" -> bulk(this.strings.get(text(args.get(0))));
+            case "SET" -> this.set(args);
+            case "MGET" -> array(args.stream()
+                    .map(key -> bulk(this.strings.get(text(key))))
+                    .toList());
+            case "INCR" -> {
+                String key = text(args.get(0));
+                byte[] current = this.strings.get(key);
+                long next = (current == null ? 0L : Long.parseLong(text(current))) + 1;
+                this.strings.put(key, Long.toString(next).getBytes(StandardCharsets.US_ASCII));
+                yield integer(next);
+            }
+            case "DEL", "UNLINK" -> {
+                long removed = 0;
+                for (byte[] key : args) {
+                    boolean string = this.strings.remove(text(key)) != null;
+                    boolean hash = this.hashes.remove(text(key)) != null;
+                    if (string || hash) removed++;
+                }
+                yield integer(removed);
+            }
+            case "HGET" -> bulk(this.hash(args.get(0)).get(text(args.get(1))));
+            case "HMGET" -> {
+                Map<String, byte[]> hash = this.hash(args.get(0));
+                yield array(args.subList(1, args.size()).stream()
+                        .map(field -> bulk(hash.get(text(field))))
+                        .toList());
+            }
+            case "HSET" -> {
+                Map<String, byte[]> hash = this.hashes.computeIfAbsent(text(args.get(0)), k -> new HashMap<>());
+                long added = 0;
+                for (int i = 1; i + 1 < args.size(); i += 2)
+                    if (hash.put(text(args.get(i)), args.get(i + 1)) == null) added++;
+                yield integer(added);
+            }
+            case "HDEL" -> {
+                Map<String, byte[]> hash = this.hash(args.get(0));
+                long removed = 0;
+                for (byte[] field : args.subList(1, args.size())) if (hash.remove(text(field)) != null) removed++;
+                yield integer(removed);
+            }
+            case "PEXPIRE" -> integer(1);
+            case "PUBLISH" -> integer(this.publish(text(args.get(0)), args.get(1)));
+            case "SUBSCRIBE" -> {
+                ByteArrayOutputStream replies = new ByteArrayOutputStream();
+                for (int i = 0; i < args.size(); i++) {
+                    this.subscribers
+                            .computeIfAbsent(text(args.get(i)), c -> ConcurrentHashMap.newKeySet())
+                            .add(out);
+                    replies.writeBytes(array(List.of(bulk(bytes("subscribe")), bulk(args.get(i)), integer(i + 1L))));
+                }
+                yield replies.toByteArray();
+            }
+            default -> error("ERR unknown command '" + name + "'");
+        };
+    }
+
+    private byte[] set(List<byte[]> args) {
+        String key = text(args.get(0));
+        boolean onlyIfAbsent = args.stream().skip(2).anyMatch(arg -> text(arg).equalsIgnoreCase("NX"));
+        if (onlyIfAbsent && this.strings.containsKey(key)) return bulk(null);
+
+        this.strings.put(key, args.get(1));
+        return simple("OK");
+    }
+
+    private int publish(String channel, byte[] message) throws IOException {
+        Set<OutputStream> outs = this.subscribers.getOrDefault(channel, Set.of());
+        byte[] push = array(List.of(bulk(bytes("message")), bulk(bytes(channel)), bulk(message)));
+
+        for (OutputStream out : outs) {
+            synchronized (out) {
+                out.write(push);
+                out.flush();
+            }
+        }
+        return outs.size();
+    }
+
+    private Map<String, byte[]> hash(byte[] key) {
+        return this.hashes.getOrDefault(text(key), new HashMap<>());
+    }
+
+    private static List<byte[]> read(InputStream in) throws IOException {
+        int type = in.read();
+        if (type == -1) return null;
+        if (type != '*') throw new IOException("Expected a command array, got " + (char) type);
+
+        int count = Integer.parseInt(readLine(in));
+        List<byte[]> command = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (in.read() != '$') throw new IOException("Expected a bulk string");
+
+            command.add(in.readNBytes(Integer.parseInt(readLine(in))));
+            in.skipNBytes(2);
+        }
+        return command;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (int c = in.read(); c != '\r'; c = in.read()) {
+            if (c == -1) throw new EOFException();
+            line.append((char) c);
+        }
+        in.read();
+        return line.toString();
+    }
+
+    private static String text(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] simple(String text) {
+        return bytes("+" + text + "\r\n");
+    }
+
+    private static byte[] error(String text) {
+        return bytes("-" + text + "\r\n");
+    }
+
+    private static byte[] integer(long value) {
+        return bytes(":" + value + "\r\n");
+    }
+
+    private static byte[] bulk(byte[] value) {
+        if (value == null) return bytes("$-1\r\n");
+
+        ByteArrayOutputStream reply = new ByteArrayOutputStream();
+        reply.writeBytes(bytes("$" + value.length + "\r\n"));
+        reply.writeBytes(value);
+        reply.writeBytes(bytes("\r\n"));
+        return reply.toByteArray();
+    }
+
+    private static byte[] array(List<byte[]> elements) {
+        ByteArrayOutputStream reply = new ByteArrayOutputStream();
+        reply.writeBytes(bytes("*" + elements.size() + "\r\n"));
+        elements.forEach(reply::writeBytes);
+        return reply.toByteArray();
+    }
+}
@@ -0,0 +1,80 @@
+package studio.ikara.commons.service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class CacheKeyTest {
+
+    private static final String MARKER = String.valueOf(CacheKey.MARKER);
+
+    static Stream<Arguments> keys() {
+        return Stream.of(
+                Arguments.of((Object) new Object[] {}),
+                Arguments.of((Object) new Object[] {"plain"}),
+                Arguments.of((Object) new Object[] {""}),
+                Arguments.of((Object) new Object[] {42L}),
+                Arguments.of((Object) new Object[] {null}),
+                Arguments.of((Object) new Object[] {null, null}),
+                Arguments.of((Object) new Object[] {"a", null, "b"}),
+                Arguments.of((Object) new Object[] {"", ""}),
+                Arguments.of((Object) new Object[] {"tenant:1", "user:2"}),
+                Arguments.of((Object) new Object[] {"~", "~~"}),
+                Arguments.of((Object) new Object[] {"12:ab", "3:"}),
+                Arguments.of((Object) new Object[] {MARKER}),
+                Arguments.of((Object) new Object[] {MARKER + "1:a1:b"}),
+                Arguments.of((Object) new Object[] {MARKER + "~", "x" + MARKER}),
+                Arguments.of((Object) new Object[] {"ünïcödé", "✓"}));
+    }
+
+    @ParameterizedTest
+    @MethodSource("keys")
+    void parsesItsOwnText(Object[] parts) {
+        CacheKey key = CacheKey.of(parts);
+        CacheKey parsed = CacheKey.parse(key.toString());
+
+        assertThat(parsed).isEqualTo(key);
+        assertThat(parsed.hashCode()).isEqualTo(key.hashCode());
+        assertThat(parsed.toString()).isEqualTo(key.toString());
+    }
+
+    @Test
+    void singlePartIsItsOwnText() {
+        assertThat(CacheKey.of("orders")).hasToString("orders");
+        assertThat(CacheKey.of(7)).hasToString("7");
+        assertThat(CacheKey.parse("orders")).isEqualTo(CacheKey.of("orders"));
+    }
+
+    @Test
+    void keepsPartBoundaries() {
+        assertThat(CacheKey.of(1, 23)).isNotEqualTo(CacheKey.of(12, 3));
+        assertThat(CacheKey.of(1, 23).toString()).isNotEqualTo(CacheKey.of(12, 3).toString());
+        assertThat(CacheKey.of("a:b")).isNotEqualTo(CacheKey.of("a", "b"));
+        assertThat(CacheKey.of((Object) null)).isNotEqualTo(CacheKey.of("~"));
+        assertThat(CacheKey.of((Object) null).toString()).isNotEqualTo(CacheKey.of("~").toString());
+        assertThat(CacheKey.of("a", null)).isNotEqualTo(CacheKey.of("a"));
+    }
+
+    @Test
+    void singlePartLookingLikeSeveralDoesNotCollide() {
+        CacheKey several = CacheKey.of("a", "b");
+        CacheKey single = CacheKey.of(several.toString());
+
+        assertThat(single).isNotEqualTo(several);
+        assertThat(single.toString()).isNotEqualTo(several.toString());
+        assertThat(CacheKey.parse(single.toString())).isEqualTo(single);
+        assertThat(CacheKey.parse(several.toString())).isEqualTo(several);
+    }
+
+    @Test
+    void textIsStableAcrossCalls() {
+        CacheKey key = CacheKey.of("a", 1, null);
+
+        assertThat(key.toString()).isSameAs(key.toString());
+        assertThat(key.toString()).isEqualTo(MARKER + "1:a1:1~");
+    }
+}
@@ -0,0 +1,55 @@
+package studio.ikara.commons.service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CacheStampsTest {
+
+    private final CacheStamps stamps = new CacheStamps();
+
+    @Test
+    void invalidatingAKeyChangesItsStamp() {
+        CacheKey key = CacheKey.of("user", 1L);
+        long stamp = this.stamps.stamp("users", key);
+
+        this.stamps.invalidate("users", key);
+
+        assertThat(this.stamps.isCurrent("users", key, stamp)).isFalse();
+    }
+
+    @Test
+    void clearingACacheLeavesTheOtherCachesCurrent() {
+        CacheKey key = CacheKey.of("user", 1L);
+        long users = this.stamps.stamp("users", key);
+        long roles = this.stamps.stamp("roles", key);
+
+        this.stamps.invalidateAll("users");
+
+        assertThat(this.stamps.isCurrent("users", key, users)).isFalse();
+        assertThat(this.stamps.isCurrent("roles", key, roles)).isTrue();
+    }
+
+    @Test
+    void clearingEveryCacheChangesEveryStamp() {
+        CacheKey key = CacheKey.of("user", 1L);
+        long users = this.stamps.stamp("users", key);
+        long roles = this.stamps.stamp("roles", key);
+
+        this.stamps.invalidateAll();
+
+        assertThat(this.stamps.isCurrent("users", key, users)).isFalse();
+        assertThat(this.stamps.isCurrent("roles", key, roles)).isFalse();
+    }
+
+    @Test
+    void aTagEvictedDuringALoadIsNotCurrent() {
+        long before = this.stamps.tagClock();
+        this.stamps.invalidateTag("role:1");
+        long after = this.stamps.tagClock();
+
+        assertThat(this.stamps.tagsCurrent(List.of("user:1", "role:1"), before)).isFalse();
+        assertThat(this.stamps.tagsCurrent(List.of("user:1", "role:1"), after)).isTrue();
+    }
+}
@@ -0,0 +1,121 @@
+package studio.ikara.commons.service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+class HashRingTest {
+
+    private static final int KEYS = 100_000;
+
+    private static final int VIRTUAL_NODES = 160;
+
+    record Node(String name, int weight) {}
+
+    private static HashRing<Node> ring(List<Node> nodes) {
+        return new HashRing<>(nodes, Node::name, Node::weight, VIRTUAL_NODES);
+    }
+
+    private static List<Node> nodes(int count) {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < count; i++) nodes.add(new Node("redis-" + i + ":6379/0", 1));
+        return nodes;
+    }
+
+    private static String key(int i) {
+        return "cache:" + i;
+    }
+
+    private static Map<String, Integer> owners(HashRing<Node> ring) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) counts.merge(ring.node(key(i)).name(), 1, Integer::sum);
+        return counts;
+    }
+
+    private static double moved(HashRing<Node> before, HashRing<Node> after, Function<Node, Boolean> allowed) {
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            Node from = before.node(key(i));
+            Node to = after.node(key(i));
+            if (from.equals(to)) continue;
+
+            assertThat(allowed.apply(from) || allowed.apply(to)).isTrue();
+            moved++;
+        }
+        return (double) moved / KEYS;
+    }
+
+    @Test
+    void addingANodeMovesAboutItsShareOfKeys() {
+        List<Node> nodes = nodes(5);
+        HashRing<Node> before = ring(nodes);
+
+        Node added = new Node("redis-5:6379/0", 1);
+        List<Node> grown = new ArrayList<>(nodes);
+        grown.add(added);
+
+        // Only keys that now belong to the new node move, and about 1/6 of them do.
+        double moved = moved(before, ring(grown), node -> node.equals(added));
+        assertThat(moved).isCloseTo(1.0 / 6, within(0.04));
+    }
+
+    @Test
+    void removingANodeMovesOnlyItsKeys() {
+        List<Node> nodes = nodes(5);
+        HashRing<Node> before = ring(nodes);
+
+        Node removed = nodes.get(2);
+        List<Node> shrunk = new ArrayList<>(nodes);
+        shrunk.remove(removed);
+
+        double moved = moved(before, ring(shrunk), node -> node.equals(removed));
+        assertThat(moved).isCloseTo(1.0 / 5, within(0.04));
+    }
+
+    @Test
+    void spreadsKeysEvenlyAcrossEqualNodes() {
+        Map<String, Integer> counts = owners(ring(nodes(4)));
+
+        assertThat(counts).hasSize(4);
+        counts.values().forEach(count -> assertThat((double) count / KEYS).isCloseTo(0.25, within(0.04)));
+    }
+
+    @Test
+    void weightsSkewTheShareProportionally() {
+        List<Node> nodes = List.of(new Node("a:6379/0", 1), new Node("b:6379/0", 2), new Node("c:6379/0", 3));
+
+        Map<String, Integer> counts = owners(ring(nodes));
+
+        assertThat((double) counts.get("a:6379/0") / KEYS).isCloseTo(1.0 / 6, within(0.04));
+        assertThat((double) counts.get("b:6379/0") / KEYS).isCloseTo(2.0 / 6, within(0.04));
+        assertThat((double) counts.get("c:6379/0") / KEYS).isCloseTo(3.0 / 6, within(0.04));
+    }
+
+    @Test
+    void placementDependsOnlyOnTheConfiguration() {
+        HashRing<Node> first = ring(nodes(3));
+        HashRing<Node> second = ring(nodes(3));
+
+        for (int i = 0; i < 1_000; i++) assertThat(second.node(key(i))).isEqualTo(first.node(key(i)));
+    }
+
+    @Test
+    void singleNodeTakesEveryKey() {
+        Node only = new Node("only:6379/0", 1);
+        HashRing<Node> ring = ring(List.of(only));
+
+        assertThat(ring.node("anything")).isSameAs(only);
+    }
+
+    @Test
+    void rejectsAnEmptyRing() {
+        assertThatThrownBy(() -> ring(List.of())).isInstanceOf(IllegalArgumentException.class);
+    }
+}
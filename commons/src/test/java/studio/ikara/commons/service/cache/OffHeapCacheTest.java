@@ -0,0 +1,213 @@
+package studio.ikara.commons.service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lettuce.core.codec.RedisCodec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import studio.ikara.commons.service.CacheObject;
+
+class OffHeapCacheTest {
+
+    private static final int SLAB = 1 << 20;
+
+    // With this value, an entry of one of the caches below takes a 1 KiB slot, so a slab holds 1024 of them.
+    private static final int KIB_VALUE = 800;
+
+    private static final int KIB_SLOTS = SLAB / 1024;
+
+    // An expiry followed by the value as text, so the size of an entry is known.
+    private static final RedisCodec<String, Object> CODEC = new RedisCodec<>() {
+
+        @Override
+        public String decodeKey(ByteBuffer bytes) {
+            return StandardCharsets.UTF_8.decode(bytes).toString();
+        }
+
+        @Override
+        public Object decodeValue(ByteBuffer bytes) {
+            CacheObject co = new CacheObject();
+            co.setExpiresAt(bytes.getLong());
+            co.setObject(StandardCharsets.UTF_8.decode(bytes).toString());
+            return co;
+        }
+
+        @Override
+        public ByteBuffer encodeKey(String key) {
+            return StandardCharsets.UTF_8.encode(key);
+        }
+
+        @Override
+        public ByteBuffer encodeValue(Object value) {
+            CacheObject co = (CacheObject) value;
+            byte[] text = ((String) co.getObject()).getBytes(StandardCharsets.UTF_8);
+            return ByteBuffer.allocate(Long.BYTES + text.length)
+                    .putLong(co.getExpiresAt())
+                    .put(text)
+                    .flip();
+        }
+    };
+
+    private final OffHeapCache cache = new OffHeapCache(4L * SLAB, 1, CODEC);
+
+    @AfterEach
+    void close() {
+        this.cache.close();
+    }
+
+    private static CacheObject entry(String value) {
+        CacheObject co = new CacheObject(value);
+        co.setExpiresAt(System.currentTimeMillis() + 60_000);
+        return co;
+    }
+
+    private static CacheKey key(int i) {
+        return CacheKey.of("k" + i);
+    }
+
+    private Object value(String cacheName, CacheKey key) {
+        return value(this.cache, cacheName, key);
+    }
+
+    private static Object value(OffHeapCache cache, String cacheName, CacheKey key) {
+        CacheObject co = cache.get(cacheName, key);
+        return co == null ? null : co.getObject();
+    }
+
+    @Test
+    void readsWhatWasPut() {
+        assertThat(this.cache.put("users", key(1), entry("one"))).isTrue();
+        assertThat(this.cache.put("users", key(2), entry("two"))).isTrue();
+
+        assertThat(this.value("users", key(1))).isEqualTo("one");
+        assertThat(this.value("users", key(2))).isEqualTo("two");
+        assertThat(this.value("users", key(3))).isNull();
+        assertThat(this.value("roles", key(1))).isNull();
+    }
+
+    @Test
+    void readsEntriesEncodedByTheCaller() {
+        CacheObject co = entry("one");
+
+        assertThat(this.cache.put("users", key(1), co, co.encode(CODEC))).isTrue();
+        assertThat(this.value("users", key(1))).isEqualTo("one");
+    }
+
+    @Test
+    void overwritesAKeyInAnySizeClass() {
+        this.cache.put("users", key(1), entry("one"));
+        this.cache.put("users", key(1), entry("x".repeat(5000)));
+        assertThat(this.value("users", key(1))).isEqualTo("x".repeat(5000));
+
+        this.cache.put("users", key(1), entry("two"));
+        assertThat(this.value("users", key(1))).isEqualTo("two");
+    }
+
+    @Test
+    void keepsNoEntryWithoutAnExpiryOrPastIt() {
+        this.cache.put("users", key(1), entry("one"));
+
+        assertThat(this.cache.put("users", key(1), new CacheObject("two"))).isFalse();
+        assertThat(this.value("users", key(1))).isNull();
+
+        CacheObject expired = new CacheObject("three");
+        expired.setExpiresAt(System.currentTimeMillis() - 1);
+        this.cache.put("users", key(2), expired);
+        assertThat(this.value("users", key(2))).isNull();
+    }
+
+    @Test
+    void evictsTheOldestUnreadEntriesWhenTheSlabsAreFull() {
+        String value = "v".repeat(KIB_VALUE);
+        int extra = 100;
+
+        try (OffHeapCache oneSlab = new OffHeapCache(SLAB, 1, CODEC)) {
+            for (int i = 0; i < KIB_SLOTS + extra; i++)
+                assertThat(oneSlab.put("users", key(i), entry(value))).isTrue();
+
+            for (int i = 0; i < extra; i++) assertThat(value(oneSlab, "users", key(i))).isNull();
+            for (int i = extra; i < KIB_SLOTS + extra; i++)
+                assertThat(value(oneSlab, "users", key(i))).isEqualTo(value);
+
+            // The only slab went to the 1 KiB slots, so other sizes find no room.
+            assertThat(oneSlab.put("users", key(-1), entry("small"))).isFalse();
+        }
+    }
+
+    @Test
+    void keepsAnEntryReadSinceTheHandLastPassed() {
+        String value = "v".repeat(KIB_VALUE);
+
+        try (OffHeapCache oneSlab = new OffHeapCache(SLAB, 1, CODEC)) {
+            for (int i = 0; i < KIB_SLOTS; i++) oneSlab.put("users", key(i), entry(value));
+
+            assertThat(value(oneSlab, "users", key(0))).isEqualTo(value);
+            oneSlab.put("users", key(KIB_SLOTS), entry(value));
+
+            assertThat(value(oneSlab, "users", key(0))).isEqualTo(value);
+            assertThat(value(oneSlab, "users", key(1))).isNull();
+            assertThat(value(oneSlab, "users", key(KIB_SLOTS))).isEqualTo(value);
+        }
+    }
+
+    @Test
+    void findsTheRestOfAProbeChainAfterADelete() {
+        int count = 3000;
+        for (int i = 0; i < count; i++) this.cache.put("users", key(i), entry("v" + i));
+
+        List<Integer> removed = new ArrayList<>();
+        for (int i = 0; i < count; i += 3) {
+            this.cache.remove("users", key(i));
+            removed.add(i);
+        }
+
+        for (int i = 0; i < count; i++)
+            assertThat(this.value("users", key(i))).isEqualTo(i % 3 == 0 ? null : "v" + i);
+
+        for (int i : removed) this.cache.put("users", key(i), entry("w" + i));
+        for (int i = 0; i < count; i++)
+            assertThat(this.value("users", key(i))).isEqualTo((i % 3 == 0 ? "w" : "v") + i);
+    }
+
+    @Test
+    void keepsNoEntryLargerThanTheLargestSlot() {
+        this.cache.put("users", key(1), entry("one"));
+
+        assertThat(this.cache.put("users", key(1), entry("x".repeat(70_000)))).isFalse();
+        assertThat(this.value("users", key(1))).isNull();
+
+        assertThat(this.cache.put("users", key(2), entry("x".repeat(2 * SLAB)))).isFalse();
+        assertThat(this.value("users", key(2))).isNull();
+    }
+
+    @Test
+    void clearsOneCacheOrAll() {
+        this.cache.put("users", key(1), entry("user"));
+        this.cache.put("roles", key(1), entry("role"));
+
+        this.cache.clear("users");
+        assertThat(this.value("users", key(1))).isNull();
+        assertThat(this.value("roles", key(1))).isEqualTo("role");
+
+        this.cache.put("users", key(1), entry("user"));
+        assertThat(this.value("users", key(1))).isEqualTo("user");
+
+        this.cache.clearAll();
+        assertThat(this.value("users", key(1))).isNull();
+        assertThat(this.value("roles", key(1))).isNull();
+    }
+
+    @Test
+    void readsAndWritesNothingOnceClosed() {
+        OffHeapCache closed = new OffHeapCache(SLAB, 1, CODEC);
+        closed.put("users", key(1), entry("one"));
+        closed.close();
+
+        assertThat(closed.get("users", key(1))).isNull();
+        assertThat(closed.put("users", key(2), entry("two"))).isFalse();
+    }
+}
@@ -0,0 +1,104 @@
+package studio.ikara.commons.service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisConnectionException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class RedisCircuitBreakerTest {
+
+    private static final long OPEN_MILLIS = 100;
+
+    private final AtomicInteger recoveries = new AtomicInteger();
+
+    private final RedisCircuitBreaker breaker = new RedisCircuitBreaker(3, OPEN_MILLIS, recoveries::incrementAndGet);
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            assertThat(this.breaker.tryAcquire()).isTrue();
+            this.breaker.onFailure(new CompletionException(new TimeoutException()));
+        }
+    }
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        this.fail(2);
+        assertThat(this.breaker.isOpen()).isFalse();
+
+        long before = System.currentTimeMillis();
+        this.fail(1);
+
+        assertThat(this.breaker.isOpen()).isTrue();
+        assertThat(this.breaker.openedAt()).isGreaterThanOrEqualTo(before);
+        assertThat(this.breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        this.fail(2);
+        this.breaker.onSuccess();
+        this.fail(2);
+
+        assertThat(this.breaker.isOpen()).isFalse();
+    }
+
+    @Test
+    void errorRepliesDoNotCount() {
+        for (int i = 0; i < 10; i++) this.breaker.onFailure(new RedisCommandExecutionException("WRONGTYPE"));
+        for (int i = 0; i < 10; i++) this.breaker.onFailure(new IllegalStateException("Unable to decode"));
+
+        assertThat(this.breaker.isOpen()).isFalse();
+    }
+
+    @Test
+    void connectionErrorsCount() {
+        for (int i = 0; i < 3; i++) this.breaker.onFailure(new RedisConnectionException("refused"));
+
+        assertThat(this.breaker.isOpen()).isTrue();
+    }
+
+    @Test
+    void halfOpenProbeClosesTheBreaker() throws InterruptedException {
+        this.fail(3);
+        assertThat(this.breaker.tryAcquire()).isFalse();
+
+        Thread.sleep(OPEN_MILLIS + 20);
+
+        // One probe is let through, everything else still fails fast until it answers.
+        assertThat(this.breaker.tryAcquire()).isTrue();
+        assertThat(this.breaker.tryAcquire()).isFalse();
+
+        this.breaker.onSuccess();
+
+        assertThat(this.breaker.isOpen()).isFalse();
+        assertThat(this.breaker.tryAcquire()).isTrue();
+        assertThat(this.recoveries).hasValue(1);
+    }
+
+    @Test
+    void failedProbeOpensTheBreakerAgain() throws InterruptedException {
+        this.fail(3);
+        Thread.sleep(OPEN_MILLIS + 20);
+
+        assertThat(this.breaker.tryAcquire()).isTrue();
+        this.breaker.onFailure(new TimeoutException());
+
+        assertThat(this.breaker.isOpen()).isTrue();
+        assertThat(this.breaker.tryAcquire()).isFalse();
+        assertThat(this.recoveries).hasValue(0);
+    }
+
+    @Test
+    void zeroThresholdNeverOpens() {
+        RedisCircuitBreaker disabled = new RedisCircuitBreaker(0, OPEN_MILLIS, () -> {});
+
+        for (int i = 0; i < 100; i++) disabled.onFailure(new TimeoutException());
+
+        assertThat(disabled.isOpen()).isFalse();
+        assertThat(disabled.tryAcquire()).isTrue();
+    }
+}
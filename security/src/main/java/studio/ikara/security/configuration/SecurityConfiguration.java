@@ -8,9 +8,15 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.web.SecurityFilterChain;
+import studio.ikara.commons.codec.BinaryTypeRegistry;
 import studio.ikara.commons.jooq.configuration.AbstractJooqBaseConfiguration;
 import studio.ikara.commons.security.ISecurityConfiguration;
+import studio.ikara.commons.security.jwt.ContextUser;
 import studio.ikara.commons.security.service.IAuthenticationService;
+import studio.ikara.security.dto.Permission;
+import studio.ikara.security.dto.Role;
+import studio.ikara.security.dto.User;
+import studio.ikara.security.enums.UserStatusCode;
 import studio.ikara.security.service.SecurityMessageResourceService;
 
 @Configuration
@@ -35,6 +41,16 @@ public class SecurityConfiguration extends AbstractJooqBaseConfiguration impleme
         super.initialize(messageResourceService);
     }
 
+    @Override
+    public BinaryTypeRegistry binaryTypeRegistry() {
+        return super.binaryTypeRegistry()
+                .register(100, ContextUser.class)
+                .register(101, User.class)
+                .register(102, Role.class)
+                .register(103, Permission.class)
+                .register(104, UserStatusCode.class);
+    }
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         return springSecurityFilterChain(
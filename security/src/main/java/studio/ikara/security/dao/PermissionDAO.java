@@ -1,7 +1,9 @@
 package studio.ikara.security.dao;
 
 import static studio.ikara.security.jooq.Tables.SECURITY_PERMISSIONS;
+import static studio.ikara.security.jooq.Tables.SECURITY_ROLE_PERMISSIONS;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import org.jooq.types.ULong;
@@ -23,4 +25,12 @@ public class PermissionDAO extends AbstractUpdatableDAO<SecurityPermissionsRecor
                 .where(SECURITY_PERMISSIONS.CODE.eq(code))
                 .fetchOptionalInto(Permission.class));
     }
+
+    public CompletableFuture<List<ULong>> findRoleIds(ULong permissionId) {
+        return CompletableFuture.supplyAsync(() -> dslContext
+                .select(SECURITY_ROLE_PERMISSIONS.ROLE_ID)
+                .from(SECURITY_ROLE_PERMISSIONS)
+                .where(SECURITY_ROLE_PERMISSIONS.PERMISSION_ID.eq(permissionId))
+                .fetch(SECURITY_ROLE_PERMISSIONS.ROLE_ID));
+    }
 }
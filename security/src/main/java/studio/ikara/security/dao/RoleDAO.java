@@ -5,8 +5,14 @@ import static studio.ikara.security.jooq.Tables.SECURITY_ROLE_PERMISSIONS;
 import static studio.ikara.security.jooq.Tables.SECURITY_ROLES;
 import static studio.ikara.security.jooq.Tables.SECURITY_USER_ROLES;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import org.jooq.Condition;
+import org.jooq.impl.DSL;
 import org.jooq.types.ULong;
 import org.springframework.stereotype.Component;
 import studio.ikara.commons.jooq.dao.AbstractUpdatableDAO;
@@ -18,6 +24,8 @@ public class RoleDAO extends AbstractUpdatableDAO<SecurityRolesRecord, ULong, Ro
 
     protected RoleDAO() {
         super(Role.class, SECURITY_ROLES, SECURITY_ROLES.ID);
+
+        this.relation("permissions", this::permissionCodes, Role::setPermissions);
     }
 
     public CompletableFuture<List<String>> findPermissionCodes(ULong roleId) {
@@ -30,6 +38,48 @@ public class RoleDAO extends AbstractUpdatableDAO<SecurityRolesRecord, ULong, Ro
                 .fetchInto(String.class));
     }
 
+    /**
+     * Roles by id with their permission codes, in two queries. All roles when the ids are null.
+     */
+    public CompletableFuture<Map<ULong, Role>> findWithPermissions(Collection<ULong> roleIds) {
+        return CompletableFuture.supplyAsync(() -> {
+            Condition condition = roleIds == null ? DSL.noCondition() : SECURITY_ROLES.ID.in(roleIds);
+
+            Map<ULong, Role> roles = new LinkedHashMap<>();
+            dslContext
+                    .selectFrom(SECURITY_ROLES)
+                    .where(condition)
+                    .fetchInto(Role.class)
+                    .forEach(role -> roles.put(role.getId(), role));
+
+            if (roles.isEmpty()) return roles;
+
+            Map<ULong, List<String>> permissions = this.permissionCodes(roles.keySet());
+            roles.values().forEach(role -> role.setPermissions(permissions.get(role.getId())));
+
+            return roles;
+        });
+    }
+
+    /**
+     * The permission codes of each of the roles, in one query. Every role gets a list, empty when it has none.
+     */
+    private Map<ULong, List<String>> permissionCodes(Collection<ULong> roleIds) {
+        Map<ULong, List<String>> codes = new LinkedHashMap<>();
+        roleIds.forEach(roleId -> codes.put(roleId, new ArrayList<>()));
+
+        dslContext
+                .select(SECURITY_ROLE_PERMISSIONS.ROLE_ID, SECURITY_PERMISSIONS.CODE)
+                .from(SECURITY_ROLE_PERMISSIONS)
+                .join(SECURITY_PERMISSIONS)
+                .on(SECURITY_ROLE_PERMISSIONS.PERMISSION_ID.eq(SECURITY_PERMISSIONS.ID))
+                .where(SECURITY_ROLE_PERMISSIONS.ROLE_ID.in(codes.keySet()))
+                .fetch()
+                .forEach(row -> codes.get(row.value1()).add(row.value2()));
+
+        return codes;
+    }
+
     public CompletableFuture<Void> syncPermissions(ULong roleId, List<String> codes) {
         return CompletableFuture.supplyAsync(() -> {
             List<ULong> permissionIds = dslContext
@@ -12,6 +12,31 @@ import studio.ikara.security.jooq.tables.records.SecurityPermissionsRecord;
 public class PermissionService
         extends AbstractJOOQUpdatableDataService<SecurityPermissionsRecord, ULong, Permission, PermissionDAO> {
 
+    private final RoleService roleService;
+
+    public PermissionService(RoleService roleService) {
+        this.roleService = roleService;
+    }
+
+    /**
+     * Roles carry their permission codes, so the roles holding the permission are evicted, and with them the
+     * authorities of their users.
+     */
+    @Override
+    public CompletableFuture<Permission> update(Permission entity) {
+        return super.update(entity).thenCompose(saved -> this.dao
+                .findRoleIds(saved.getId())
+                .thenCompose(this.roleService::evictRoles)
+                .thenApply(evicted -> saved));
+    }
+
+    @Override
+    public CompletableFuture<Integer> delete(ULong id) {
+        // Read first, as deleting the permission drops its role links.
+        return this.dao.findRoleIds(id).thenCompose(roleIds -> super.delete(id)
+                .thenCompose(deleted -> this.roleService.evictRoles(roleIds).thenApply(evicted -> deleted)));
+    }
+
     @Override
     protected CompletableFuture<Permission> updatableEntity(Permission entity) {
         return CompletableFuture.supplyAsync(() -> {
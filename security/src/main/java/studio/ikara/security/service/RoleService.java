@@ -1,10 +1,14 @@
 package studio.ikara.security.service;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import org.jooq.types.ULong;
 import org.springframework.stereotype.Service;
 import studio.ikara.commons.jooq.service.AbstractJOOQUpdatableDataService;
+import studio.ikara.commons.service.CacheService;
 import studio.ikara.security.dao.RoleDAO;
 import studio.ikara.security.dto.Role;
 import studio.ikara.security.jooq.tables.records.SecurityRolesRecord;
@@ -13,6 +17,14 @@ import studio.ikara.security.jooq.tables.records.SecurityRolesRecord;
 public class RoleService
         extends AbstractJOOQUpdatableDataService<SecurityRolesRecord, ULong, Role, RoleDAO> {
 
+    private static final String CACHE_NAME_ROLES = "roles";
+
+    private final CacheService cacheService;
+
+    public RoleService(CacheService cacheService) {
+        this.cacheService = cacheService;
+    }
+
     @Override
     public CompletableFuture<Role> create(Role entity) {
         return super.create(entity).thenCompose(saved -> enrichPermissions(saved, entity.getPermissions()));
@@ -20,15 +32,52 @@ public class RoleService
 
     @Override
     public CompletableFuture<Role> update(Role entity) {
-        return super.update(entity).thenCompose(saved -> enrichPermissions(saved, entity.getPermissions()));
+        return super.update(entity)
+                .thenCompose(saved -> enrichPermissions(saved, entity.getPermissions()))
+                .thenCompose(saved -> this.evictRoles(List.of(entity.getId())).thenApply(evicted -> saved));
+    }
+
+    @Override
+    public CompletableFuture<Integer> delete(ULong id) {
+        return super.delete(id).thenCompose(deleted -> this.evictRoles(List.of(id)).thenApply(evicted -> deleted));
+    }
+
+    /**
+     * Drops the cached roles and the cached authorities of every user holding one of them, after the roles or their
+     * permissions changed.
+     */
+    public CompletableFuture<Boolean> evictRoles(Collection<ULong> roleIds) {
+        List<CompletableFuture<Boolean>> evictions = new ArrayList<>(roleIds.size() * 2);
+        for (ULong roleId : roleIds) {
+            evictions.add(this.cacheService.evict(CACHE_NAME_ROLES, roleId));
+            evictions.add(this.cacheService.evictByTag(UserService.roleTag(roleId)));
+        }
+
+        return CompletableFuture.allOf(evictions.toArray(CompletableFuture[]::new))
+                .thenApply(done -> evictions.stream().allMatch(CompletableFuture::join));
+    }
+
+    /**
+     * Roles by id with their permission codes, from the cache, and from the database for those it doesn't hold.
+     */
+    public CompletableFuture<Map<ULong, Role>> readWithPermissions(Collection<ULong> ids) {
+        return this.cacheService.getAll(CACHE_NAME_ROLES, ids, this.dao::findWithPermissions);
+    }
+
+    public CompletableFuture<Map<ULong, Role>> preloadRoles() {
+        return this.dao
+                .findWithPermissions(null)
+                .thenCompose(roles -> this.cacheService.putAll(CACHE_NAME_ROLES, roles));
     }
 
     public CompletableFuture<Void> assignToUser(ULong roleId, ULong userId) {
-        return this.dao.assignToUser(roleId, userId);
+        return this.dao.assignToUser(roleId, userId)
+                .thenCompose(this.cacheService.evictByTagFunction(UserService.userTag(userId)));
     }
 
     public CompletableFuture<Void> revokeFromUser(ULong roleId, ULong userId) {
-        return this.dao.revokeFromUser(roleId, userId);
+        return this.dao.revokeFromUser(roleId, userId)
+                .thenCompose(this.cacheService.evictByTagFunction(UserService.userTag(userId)));
     }
 
     @Override
@@ -0,0 +1,24 @@
+package studio.ikara.security.service;
+
+import java.util.concurrent.CompletableFuture;
+import org.springframework.stereotype.Component;
+import studio.ikara.commons.service.cache.CachePreloader;
+
+/**
+ * Caches every role with its permission codes at startup, so the first logins after a deploy build their authorities
+ * from the cache instead of querying roles and permissions per user.
+ */
+@Component
+public class SecurityCachePreloader implements CachePreloader {
+
+    private final RoleService roleService;
+
+    public SecurityCachePreloader(RoleService roleService) {
+        this.roleService = roleService;
+    }
+
+    @Override
+    public CompletableFuture<?> preload() {
+        return this.roleService.preloadRoles();
+    }
+}
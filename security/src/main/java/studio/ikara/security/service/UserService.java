@@ -1,28 +1,130 @@
 package studio.ikara.security.service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-
 import org.jooq.types.ULong;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import studio.ikara.commons.function.Tuples;
 import studio.ikara.commons.jooq.service.AbstractJOOQUpdatableDataService;
 import studio.ikara.commons.security.jwt.ContextUser;
+import studio.ikara.commons.security.util.AuthoritiesNameUtil;
+import studio.ikara.commons.service.CacheService;
 import studio.ikara.commons.thread.VirtualThreadExecutor;
 import studio.ikara.security.dao.UserDAO;
+import studio.ikara.security.dto.Role;
 import studio.ikara.security.dto.User;
 import studio.ikara.security.jooq.tables.records.SecurityUsersRecord;
 
 @Service
 public class UserService extends AbstractJOOQUpdatableDataService<SecurityUsersRecord, ULong, User, UserDAO> {
 
+    private static final String CACHE_NAME_AUTHORITIES = "userAuthorities";
+
+    private static final String CACHE_NAME_USERNAMES = "usernames";
+
     private final PasswordEncoder passwordEncoder;
 
-    public UserService(PasswordEncoder passwordEncoder) {
+    private final CacheService cacheService;
+
+    private final RoleService roleService;
+
+    public UserService(PasswordEncoder passwordEncoder, CacheService cacheService, RoleService roleService) {
         this.passwordEncoder = passwordEncoder;
+        this.cacheService = cacheService;
+        this.roleService = roleService;
+    }
+
+    public static String userTag(ULong userId) {
+        return "user:" + userId;
+    }
+
+    public static String roleTag(ULong roleId) {
+        return "role:" + roleId;
     }
 
+    /**
+     * Unknown user names are remembered for a short while, so repeated logins with a mistyped or made up name don't
+     * reach the database. Found users are not cached.
+     */
     public CompletableFuture<User> findByUsername(String username) {
-        return this.dao.findByUsername(username);
+        return this.cacheService
+                .cacheAbsentOrGet(CACHE_NAME_USERNAMES, () -> this.dao.findByUsername(username), username)
+                .thenCompose(user -> {
+                    if (user == null) return CompletableFuture.completedFuture(null);
+
+                    return this.findAuthorities(user).thenApply(user::setAuthorities);
+                });
+    }
+
+    /**
+     * Authorities are cached per user and tagged with the user and each of its roles, so changing a role evicts
+     * exactly the users holding it. They are built from the user's roles, which are cached on their own.
+     */
+    private CompletableFuture<List<String>> findAuthorities(User user) {
+        return this.cacheService.cacheTaggedValueOrGet(
+                CACHE_NAME_AUTHORITIES,
+                () -> this.dao
+                        .findRoleIds(user.getId())
+                        .thenCompose(roleIds -> this.roleService
+                                .readWithPermissions(roleIds)
+                                .thenApply(roles -> Tuples.of(
+                                        authorities(user.getClientCode(), roles.values()),
+                                        authorityTags(user.getId(), roleIds)))),
+                user.getId());
+    }
+
+    private static List<String> authorities(String clientCode, Collection<Role> roles) {
+        Set<String> authorities = new LinkedHashSet<>();
+
+        for (Role role : roles) {
+            authorities.add(AuthoritiesNameUtil.makeRoleName(clientCode, role.getName()));
+            if (role.getPermissions() == null) continue;
+
+            for (String code : role.getPermissions())
+                authorities.add(AuthoritiesNameUtil.makePermissionName(clientCode, code));
+        }
+
+        return List.copyOf(authorities);
+    }
+
+    private static List<String> authorityTags(ULong userId, List<ULong> roleIds) {
+        List<String> tags = new ArrayList<>(roleIds.size() + 1);
+        tags.add(userTag(userId));
+        roleIds.forEach(roleId -> tags.add(roleTag(roleId)));
+        return tags;
+    }
+
+    public CompletableFuture<Boolean> evictAuthorities(ULong userId) {
+        return this.cacheService.evictByTag(userTag(userId));
+    }
+
+    @Override
+    public CompletableFuture<User> create(User entity) {
+        return super.create(entity)
+                .thenCompose(this.cacheService.evictFunction(CACHE_NAME_USERNAMES, entity.getUserName()));
+    }
+
+    @Override
+    public CompletableFuture<User> update(User entity) {
+        return super.update(entity)
+                .thenCompose(this.cacheService.evictFunction(CACHE_NAME_USERNAMES, entity.getUserName()))
+                .thenCompose(this.cacheService.evictByTagFunction(userTag(entity.getId())));
+    }
+
+    @Override
+    public CompletableFuture<User> update(ULong key, Map<String, Object> fields) {
+        return super.update(key, fields).thenCompose(this.cacheService.evictByTagFunction(userTag(key)));
+    }
+
+    @Override
+    public CompletableFuture<Integer> delete(ULong id) {
+        return super.delete(id).thenCompose(this.cacheService.evictByTagFunction(userTag(id)));
     }
 
     public CompletableFuture<Boolean> validatePassword(User user, String password) {